@@ -2,7 +2,9 @@ package teamfive.service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan(basePackages = {
@@ -10,6 +12,8 @@ import org.springframework.context.annotation.ComponentScan;
         "teamfive.client",
         "dto"
 })
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class MainApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,31 @@
+package teamfive.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "ewm.views")
+public class EventViewProperties {
+
+    private boolean unique = true;
+
+    /**
+     * Начало периода подсчёта просмотров. С него запрашиваются только полные сверки.
+     */
+    private String since = "2000-01-01 00:00:00";
+
+    private int reconcileBatchSize = 100;
+
+    /**
+     * Сколько ждать доставки hit на сервер: сверка не запрашивает последние settle минут.
+     */
+    private Duration settle = Duration.ofMinutes(1);
+
+    private Duration fullReconcileInterval = Duration.ofHours(1);
+
+    private long maxTracked = 10_000;
+
+    private Duration trackedTtl = Duration.ofHours(1);
+}
@@ -0,0 +1,23 @@
+package teamfive.service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import teamfive.service.view.EventHitInterceptor;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final EventHitInterceptor eventHitInterceptor;
+
+    public WebConfig(EventHitInterceptor eventHitInterceptor) {
+        this.eventHitInterceptor = eventHitInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(eventHitInterceptor)
+                .addPathPatterns("/events", "/events/*")
+                .excludePathPatterns("/events/views");
+    }
+}
@@ -0,0 +1,29 @@
+package teamfive.service.view;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import teamfive.client.StatClient;
+
+/**
+ * Регистрирует в статистике успешные GET-запросы публичных эндпоинтов событий. Через HitListener
+ * эти просмотры сразу попадают в EventViewCounter.
+ */
+@Component
+public class EventHitInterceptor implements HandlerInterceptor {
+
+    private final StatClient statClient;
+
+    public EventHitInterceptor(StatClient statClient) {
+        this.statClient = statClient;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (ex == null && "GET".equals(request.getMethod()) && response.getStatus() < 400) {
+            statClient.hit(request);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package teamfive.service.view;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Как просмотры событий представлены в сервере статистики: uri /events/{id} и формат времени запросов.
+ */
+final class EventStats {
+
+    static final String EVENTS_PREFIX = "/events/";
+    static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private EventStats() {
+    }
+
+    static String uri(long eventId) {
+        return EVENTS_PREFIX + eventId;
+    }
+
+    /**
+     * Id события из uri /events/{id} или -1, если uri другой.
+     */
+    static long parseEventId(String uri) {
+        if (uri == null || !uri.startsWith(EVENTS_PREFIX) || uri.length() == EVENTS_PREFIX.length()
+                || uri.length() - EVENTS_PREFIX.length() > 18) {
+            return -1;
+        }
+        long eventId = 0;
+        for (int i = EVENTS_PREFIX.length(); i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            eventId = eventId * 10 + (c - '0');
+        }
+        return eventId;
+    }
+}
@@ -0,0 +1,37 @@
+package teamfive.service.view;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Просмотры событий из EventViewCounter. С sort=VIEWS события упорядочены по убыванию просмотров,
+ * иначе возвращаются в порядке ids.
+ */
+@RestController
+@RequestMapping("/events/views")
+public class EventViewController {
+
+    private final EventViewCounter counter;
+
+    public EventViewController(EventViewCounter counter) {
+        this.counter = counter;
+    }
+
+    @GetMapping
+    public List<EventViews> getViews(@RequestParam List<Long> ids,
+                                     @RequestParam(required = false) String sort) {
+        List<Long> eventIds = "VIEWS".equals(sort) ? counter.sortByViews(ids) : ids.stream().distinct().toList();
+        Map<Long, Long> views = counter.getViews(eventIds);
+        return eventIds.stream()
+                .map(eventId -> new EventViews(eventId, views.get(eventId)))
+                .toList();
+    }
+
+    public record EventViews(long id, long views) {
+    }
+}
@@ -0,0 +1,273 @@
+package teamfive.service.view;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import teamfive.client.CapturedHit;
+import teamfive.client.HitListener;
+import teamfive.client.StatClient;
+import teamfive.service.config.EventViewProperties;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Число просмотров событий без обращения к серверу статистики. Отслеживаются события, по которым
+ * StatClient снимал просмотры /events/{id} или значение которых запрашивалось у сервера: не больше
+ * maxTracked, запись удаляется через trackedTtl без просмотров и чтений. Для события хранится значение,
+ * подтверждённое сверкой за период до untilMinute, и локальные просмотры после этого периода. Без unique
+ * к значению прибавляется число локальных просмотров, при unique - число различных ip среди них:
+ * ip мог уже быть учтён сервером, поэтому до сверки значение может быть завышено, а сверка заменяет его.
+ * Для ещё не подтверждённых событий значение запрашивается у сервера и сохраняется до ближайшей сверки,
+ * которая проводится для таких событий полностью. Если сервер недоступен, возвращается 0 без сохранения.
+ */
+@Slf4j
+@Service
+public class EventViewCounter implements HitListener {
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final boolean unique;
+    private final LocalDateTime since;
+    private final long settleMillis;
+    private final long fullReconcileMillis;
+    private final Clock clock;
+    private final Function<Long, CompletableFuture<Long>> serverViews;
+    private final Cache<Long, Views> views;
+
+    @Autowired
+    public EventViewCounter(EventViewProperties properties, ObjectProvider<StatClient> statClient) {
+        this(properties, Clock.systemDefaultZone(), eventId -> statClient.getObject().requireViewsAsync(
+                properties.getSince(), LocalDateTime.now().format(EventStats.FORMATTER), EventStats.uri(eventId),
+                properties.isUnique()));
+    }
+
+    EventViewCounter(EventViewProperties properties, Clock clock,
+                     Function<Long, CompletableFuture<Long>> serverViews) {
+        this.unique = properties.isUnique();
+        this.since = LocalDateTime.parse(properties.getSince(), EventStats.FORMATTER);
+        this.settleMillis = properties.getSettle().toMillis();
+        this.fullReconcileMillis = properties.getFullReconcileInterval().toMillis();
+        this.clock = clock;
+        this.serverViews = serverViews;
+        this.views = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTracked())
+                .expireAfterAccess(properties.getTrackedTtl())
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .executor(Runnable::run)
+                .build();
+    }
+
+    @Override
+    public void onHit(CapturedHit hit) {
+        long eventId = EventStats.parseEventId(hit.uri());
+        if (eventId < 0) {
+            return;
+        }
+        views.get(eventId, id -> new Views()).add(Math.floorDiv(hit.timestamp(), MINUTE_MILLIS), hit.ip());
+    }
+
+    public long getViews(long eventId) {
+        return getViews(List.of(eventId)).get(eventId);
+    }
+
+    public Map<Long, Long> getViews(Collection<Long> eventIds) {
+        Map<Long, Long> result = new HashMap<>();
+        Map<Long, CompletableFuture<Long>> requested = new HashMap<>();
+        for (Long eventId : eventIds) {
+            Views eventViews = views.getIfPresent(eventId);
+            long count = eventViews == null ? -1 : eventViews.count();
+            if (count >= 0) {
+                result.put(eventId, count);
+            } else {
+                requested.computeIfAbsent(eventId, serverViews);
+            }
+        }
+        long now = clock.millis();
+        requested.forEach((eventId, future) -> {
+            long serverCount;
+            try {
+                serverCount = future.join();
+            } catch (CompletionException | CancellationException e) {
+                log.warn("Не удалось получить просмотры события: id = {}. {}", eventId, e.getMessage());
+                result.put(eventId, 0L);
+                return;
+            }
+            result.put(eventId, views.get(eventId, id -> new Views()).snapshot(serverCount, now));
+        });
+        return result;
+    }
+
+    /**
+     * События в порядке убывания просмотров, при равенстве - по возрастанию id.
+     */
+    public List<Long> sortByViews(Collection<Long> eventIds) {
+        Map<Long, Long> counts = getViews(eventIds);
+        return eventIds.stream()
+                .distinct()
+                .sorted(Comparator.<Long, Long>comparing(counts::get, Comparator.reverseOrder())
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+    }
+
+    Set<Long> trackedEvents() {
+        return Set.copyOf(views.asMap().keySet());
+    }
+
+    /**
+     * Запросы сверки до начала минуты now - settle. С since запрашиваются ещё не сверенные события,
+     * события со значением, полученным при чтении, и события, полная сверка которых была раньше
+     * fullReconcileInterval. Без unique остальные
+     * запрашиваются только за минуты после прошлой сверки. При unique остальные запрашиваются,
+     * только если после прошлой сверки были локальные просмотры.
+     */
+    List<Reconcile> planReconcile() {
+        long now = clock.millis();
+        long untilMinute = Math.floorDiv(now - settleMillis, MINUTE_MILLIS);
+        List<Long> full = new ArrayList<>();
+        Map<Long, List<Long>> deltas = new TreeMap<>();
+        views.asMap().forEach((eventId, eventViews) -> {
+            Confirmed confirmed = eventViews.confirmed;
+            if (confirmed == null || confirmed.snapshot() || now - confirmed.fullAt() >= fullReconcileMillis) {
+                full.add(eventId);
+            } else if (confirmed.untilMinute() < untilMinute) {
+                if (!unique) {
+                    deltas.computeIfAbsent(confirmed.untilMinute(), minute -> new ArrayList<>()).add(eventId);
+                } else if (eventViews.lastMinute.get() >= confirmed.untilMinute()) {
+                    full.add(eventId);
+                }
+            }
+        });
+        LocalDateTime end = toLocal(untilMinute).minusSeconds(1);
+        List<Reconcile> reconciles = new ArrayList<>();
+        if (!full.isEmpty()) {
+            reconciles.add(new Reconcile(since, end, -1, untilMinute, full));
+        }
+        deltas.forEach((fromMinute, eventIds) ->
+                reconciles.add(new Reconcile(toLocal(fromMinute), end, fromMinute, untilMinute, eventIds)));
+        return reconciles;
+    }
+
+    /**
+     * Применяет ответ сервера на запрос сверки. События, которых нет в ответе, получают 0 просмотров
+     * за период запроса.
+     */
+    void confirm(Reconcile reconcile, Collection<Long> eventIds, Map<Long, Long> serverViews) {
+        long now = clock.millis();
+        for (Long eventId : eventIds) {
+            Views eventViews = views.policy().getIfPresentQuietly(eventId);
+            if (eventViews != null) {
+                eventViews.confirm(reconcile, serverViews.getOrDefault(eventId, 0L), now);
+            }
+        }
+    }
+
+    private LocalDateTime toLocal(long epochMinute) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMinute * MINUTE_MILLIS), clock.getZone());
+    }
+
+    /**
+     * Запрос просмотров eventIds за [start, end]. fromMinute - граница прошлой сверки, от которой
+     * считается приращение, или -1 для запроса с since.
+     */
+    record Reconcile(LocalDateTime start, LocalDateTime end, long fromMinute, long untilMinute,
+                     List<Long> eventIds) {
+
+        boolean full() {
+            return fromMinute < 0;
+        }
+    }
+
+    /**
+     * snapshot - значение, полученное от сервера при чтении, а не сверкой за период до untilMinute.
+     * Локальные просмотры к нему прибавляются со следующей минуты.
+     */
+    private record Confirmed(long views, long untilMinute, long fullAt, boolean snapshot) {
+    }
+
+    private final class Views {
+
+        private volatile Confirmed confirmed;
+        private final LongAccumulator lastMinute = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final ConcurrentSkipListMap<Long, LongAdder> hits = unique ? null : new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<Long, Set<String>> ips = unique ? new ConcurrentSkipListMap<>() : null;
+
+        void add(long minute, String ip) {
+            lastMinute.accumulate(minute);
+            if (hits != null) {
+                hits.computeIfAbsent(minute, key -> new LongAdder()).increment();
+            } else {
+                ips.computeIfAbsent(minute, key -> ConcurrentHashMap.newKeySet()).add(ip);
+            }
+        }
+
+        long count() {
+            Confirmed current = confirmed;
+            if (current == null) {
+                return -1;
+            }
+            long count = current.views();
+            if (hits != null) {
+                for (LongAdder minuteHits : hits.tailMap(current.untilMinute()).values()) {
+                    count += minuteHits.sum();
+                }
+            } else {
+                Set<String> distinct = new HashSet<>();
+                for (Set<String> minuteIps : ips.tailMap(current.untilMinute()).values()) {
+                    distinct.addAll(minuteIps);
+                }
+                count += distinct.size();
+            }
+            return count;
+        }
+
+        /**
+         * Сохраняет значение сервера, если событие ещё не подтверждено, и возвращает текущее значение.
+         */
+        synchronized long snapshot(long serverViews, long now) {
+            if (confirmed == null) {
+                confirmed = new Confirmed(serverViews, Math.floorDiv(now, MINUTE_MILLIS) + 1, now, true);
+            }
+            return count();
+        }
+
+        synchronized void confirm(Reconcile reconcile, long serverViews, long now) {
+            Confirmed current = confirmed;
+            if (reconcile.full() || current == null) {
+                confirmed = new Confirmed(serverViews, reconcile.untilMinute(), now, false);
+            } else if (current.untilMinute() == reconcile.fromMinute() && !current.snapshot()) {
+                confirmed = new Confirmed(current.views() + serverViews, reconcile.untilMinute(), current.fullAt(),
+                        false);
+            } else {
+                return;
+            }
+            if (hits != null) {
+                hits.headMap(reconcile.untilMinute()).clear();
+            } else {
+                ips.headMap(reconcile.untilMinute()).clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package teamfive.service.view;
+
+import dto.StatDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import teamfive.client.StatClient;
+import teamfive.service.config.EventViewProperties;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Раз в ewm.views.reconcile-interval-ms сверяет счётчики EventViewCounter с сервером статистики
+ * по запросам из EventViewCounter.planReconcile, пачками по reconcileBatchSize событий. Если сервер
+ * недоступен, сверка этих событий повторяется в следующий раз за больший период.
+ */
+@Slf4j
+@Service
+public class EventViewReconciler {
+
+    private final EventViewCounter counter;
+    private final StatClient statClient;
+    private final EventViewProperties properties;
+
+    public EventViewReconciler(EventViewCounter counter, StatClient statClient, EventViewProperties properties) {
+        this.counter = counter;
+        this.statClient = statClient;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${ewm.views.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        int batchSize = properties.getReconcileBatchSize();
+        for (EventViewCounter.Reconcile reconcile : counter.planReconcile()) {
+            List<Long> eventIds = reconcile.eventIds();
+            for (int from = 0; from < eventIds.size(); from += batchSize) {
+                reconcile(reconcile, eventIds.subList(from, Math.min(from + batchSize, eventIds.size())));
+            }
+        }
+    }
+
+    private void reconcile(EventViewCounter.Reconcile reconcile, List<Long> eventIds) {
+        List<String> uris = eventIds.stream().map(EventStats::uri).toList();
+        try {
+            List<StatDto> stats = statClient.requireStats(reconcile.start().format(EventStats.FORMATTER),
+                    reconcile.end().format(EventStats.FORMATTER), uris, properties.isUnique());
+            Map<Long, Long> serverViews = new HashMap<>();
+            for (StatDto statDto : stats) {
+                long eventId = EventStats.parseEventId(statDto.getUri());
+                if (eventId >= 0) {
+                    serverViews.merge(eventId, statDto.getHits(), Long::sum);
+                }
+            }
+            counter.confirm(reconcile, eventIds, serverViews);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сверить просмотры событий: количество = {}. {}", eventIds.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package teamfive.service.view;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import teamfive.client.StatClient;
+import teamfive.service.config.EventViewProperties;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class EventViewControllerTest {
+
+    private final EventViewCounter counter = new EventViewCounter(new EventViewProperties(), Clock.systemUTC(),
+            eventId -> CompletableFuture.completedFuture(eventId % 2 == 0 ? eventId * 10 : eventId));
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new EventViewController(counter)).build();
+
+    @Test
+    void getViews_WithSortByViews_ShouldOrderEventsByViewsDescending() throws Exception {
+        mockMvc.perform(get("/events/views").param("ids", "1", "2", "3", "4").param("sort", "VIEWS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(4, 2, 3, 1)))
+                .andExpect(jsonPath("$[*].views").value(contains(40, 20, 3, 1)));
+    }
+
+    @Test
+    void getViews_WithoutSort_ShouldKeepRequestedOrder() throws Exception {
+        mockMvc.perform(get("/events/views").param("ids", "3", "2", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(3, 2)))
+                .andExpect(jsonPath("$[*].views").value(contains(3, 20)));
+    }
+
+    @Test
+    void afterCompletion_ShouldRecordOnlySuccessfulGetRequests() {
+        StatClient statClient = mock(StatClient.class);
+        EventHitInterceptor interceptor = new EventHitInterceptor(statClient);
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/events/1");
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/events/1");
+        MockHttpServletResponse notFound = new MockHttpServletResponse();
+        notFound.setStatus(404);
+
+        interceptor.afterCompletion(post, new MockHttpServletResponse(), null, null);
+        interceptor.afterCompletion(get, notFound, null, null);
+        verify(statClient, never()).hit(get);
+
+        interceptor.afterCompletion(get, new MockHttpServletResponse(), null, null);
+        verify(statClient).hit(get);
+    }
+}
@@ -0,0 +1,232 @@
+package teamfive.service.view;
+
+import org.junit.jupiter.api.Test;
+import teamfive.client.CapturedHit;
+import teamfive.service.config.EventViewProperties;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventViewCounterTest {
+
+    private static final LocalDateTime STARTED = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private final EventViewProperties properties = new EventViewProperties();
+    private final MutableClock clock = new MutableClock(STARTED);
+    private final List<Long> requested = new ArrayList<>();
+
+    @Test
+    void parseEventId_ShouldAcceptOnlyEventPaths() {
+        assertThat(EventStats.parseEventId("/events/42")).isEqualTo(42L);
+        assertThat(EventStats.parseEventId("/events/")).isEqualTo(-1L);
+        assertThat(EventStats.parseEventId("/events/42/comments")).isEqualTo(-1L);
+        assertThat(EventStats.parseEventId("/events")).isEqualTo(-1L);
+        assertThat(EventStats.parseEventId("/compilations/1")).isEqualTo(-1L);
+    }
+
+    @Test
+    void getViews_ForUntrackedEvents_ShouldAskServerOnceAndKeepServerViews() {
+        EventViewCounter counter = createCounter(true);
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED));
+        counter.onHit(hit("/events", "10.0.0.3", STARTED));
+
+        assertThat(counter.getViews(List.of(1L, 2L, 2L))).isEqualTo(Map.of(1L, 100L, 2L, 200L));
+        assertThat(counter.getViews(List.of(1L, 2L))).isEqualTo(Map.of(1L, 100L, 2L, 200L));
+        assertThat(requested).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(counter.trackedEvents()).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void getViews_AfterServerViews_ShouldAddLaterLocalHitsAndReconcileFully() {
+        properties.setFullReconcileInterval(Duration.ofMinutes(30));
+        EventViewCounter counter = createCounter(false);
+        assertThat(counter.getViews(1L)).isEqualTo(100L);
+
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED));
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED.plusMinutes(1)));
+        assertThat(counter.getViews(1L)).isEqualTo(101L);
+
+        clock.set(STARTED.plusMinutes(3));
+        assertThat(counter.planReconcile()).singleElement()
+                .satisfies(reconcile -> assertThat(reconcile.full()).isTrue());
+        confirmAll(counter, Map.of(1L, 102L));
+        assertThat(counter.getViews(1L)).isEqualTo(102L);
+        assertThat(requested).containsExactly(1L);
+    }
+
+    @Test
+    void getViews_WhenServerFails_ShouldReturnZeroWithoutKeepingIt() {
+        EventViewCounter counter = new EventViewCounter(properties, clock, eventId -> {
+            requested.add(eventId);
+            return requested.size() == 1
+                    ? CompletableFuture.failedFuture(new IllegalStateException("недоступен"))
+                    : CompletableFuture.completedFuture(7L);
+        });
+
+        assertThat(counter.getViews(1L)).isZero();
+        assertThat(counter.getViews(1L)).isEqualTo(7L);
+        assertThat(counter.getViews(1L)).isEqualTo(7L);
+        assertThat(requested).containsExactly(1L, 1L);
+    }
+
+    @Test
+    void getViews_WithUniqueViews_ShouldAddDistinctLocalIpsUntilReconcile() {
+        EventViewCounter counter = createCounter(true);
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED));
+        clock.set(STARTED.plusMinutes(3));
+        confirmAll(counter, Map.of(1L, 1L));
+
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED.plusMinutes(3)));
+        counter.onHit(hit("/events/1", "10.0.0.2", STARTED.plusMinutes(3)));
+        counter.onHit(hit("/events/1", "10.0.0.2", STARTED.plusMinutes(4)));
+
+        assertThat(counter.getViews(1L)).isEqualTo(3L);
+
+        clock.set(STARTED.plusMinutes(6));
+        confirmAll(counter, Map.of(1L, 2L));
+        assertThat(counter.getViews(1L)).isEqualTo(2L);
+        assertThat(requested).isEmpty();
+    }
+
+    @Test
+    void confirm_ShouldReplaceViewsBeforeWindowEndAndKeepLaterOnes() {
+        EventViewCounter counter = createCounter(false);
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED));
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED.plusMinutes(1)));
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED.plusMinutes(5)));
+        clock.set(STARTED.plusMinutes(3));
+
+        List<EventViewCounter.Reconcile> reconciles = counter.planReconcile();
+        assertThat(reconciles).singleElement().satisfies(reconcile -> {
+            assertThat(reconcile.full()).isTrue();
+            assertThat(reconcile.start()).isEqualTo(LocalDateTime.of(2000, 1, 1, 0, 0));
+            assertThat(reconcile.end()).isEqualTo(STARTED.plusMinutes(2).minusSeconds(1));
+        });
+        counter.confirm(reconciles.getFirst(), List.of(1L), Map.of(1L, 10L));
+
+        assertThat(counter.getViews(1L)).isEqualTo(11L);
+    }
+
+    @Test
+    void planReconcile_AfterConfirm_ShouldQueryOnlyNewMinutesUntilFullReconcileInterval() {
+        properties.setFullReconcileInterval(Duration.ofMinutes(30));
+        EventViewCounter counter = createCounter(false);
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED));
+        clock.set(STARTED.plusMinutes(3));
+        confirmAll(counter, Map.of(1L, 10L));
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED.plusMinutes(3)));
+
+        clock.set(STARTED.plusMinutes(6));
+        List<EventViewCounter.Reconcile> reconciles = counter.planReconcile();
+        assertThat(reconciles).singleElement().satisfies(reconcile -> {
+            assertThat(reconcile.full()).isFalse();
+            assertThat(reconcile.start()).isEqualTo(STARTED.plusMinutes(2));
+            assertThat(reconcile.end()).isEqualTo(STARTED.plusMinutes(5).minusSeconds(1));
+        });
+        counter.confirm(reconciles.getFirst(), List.of(1L), Map.of(1L, 2L));
+        assertThat(counter.getViews(1L)).isEqualTo(12L);
+
+        clock.set(STARTED.plusMinutes(33));
+        assertThat(counter.planReconcile()).singleElement()
+                .satisfies(reconcile -> assertThat(reconcile.full()).isTrue());
+    }
+
+    @Test
+    void planReconcile_WithUniqueViews_ShouldSkipEventsWithoutNewHits() {
+        EventViewCounter counter = createCounter(true);
+        counter.onHit(hit("/events/1", "10.0.0.1", STARTED));
+        counter.onHit(hit("/events/2", "10.0.0.1", STARTED));
+        clock.set(STARTED.plusMinutes(3));
+        confirmAll(counter, Map.of(1L, 1L, 2L, 1L));
+
+        counter.onHit(hit("/events/2", "10.0.0.2", STARTED.plusMinutes(3)));
+        clock.set(STARTED.plusMinutes(6));
+
+        assertThat(counter.planReconcile()).singleElement().satisfies(reconcile -> {
+            assertThat(reconcile.full()).isTrue();
+            assertThat(reconcile.eventIds()).containsExactly(2L);
+        });
+    }
+
+    @Test
+    void onHit_ShouldBoundAndExpireTrackedEvents() {
+        properties.setMaxTracked(2);
+        properties.setTrackedTtl(Duration.ofMinutes(10));
+        EventViewCounter counter = createCounter(false);
+        for (int i = 1; i <= 5; i++) {
+            counter.onHit(hit("/events/" + i, "10.0.0.1", STARTED));
+        }
+        assertThat(counter.trackedEvents()).hasSizeLessThanOrEqualTo(2);
+
+        clock.set(STARTED.plusMinutes(11));
+        assertThat(counter.trackedEvents()).isEmpty();
+    }
+
+    @Test
+    void sortByViews_ShouldOrderByViewsDescendingThenById() {
+        EventViewCounter counter = createCounter(false);
+        for (long eventId = 1; eventId <= 3; eventId++) {
+            counter.onHit(hit("/events/" + eventId, "10.0.0.1", STARTED));
+        }
+        clock.set(STARTED.plusMinutes(3));
+        confirmAll(counter, Map.of(1L, 5L, 2L, 9L, 3L, 5L));
+
+        assertThat(counter.sortByViews(List.of(3L, 1L, 2L, 4L))).containsExactly(4L, 2L, 1L, 3L);
+    }
+
+    private void confirmAll(EventViewCounter counter, Map<Long, Long> serverViews) {
+        for (EventViewCounter.Reconcile reconcile : counter.planReconcile()) {
+            counter.confirm(reconcile, reconcile.eventIds(), serverViews);
+        }
+    }
+
+    private EventViewCounter createCounter(boolean unique) {
+        properties.setUnique(unique);
+        return new EventViewCounter(properties, clock, eventId -> {
+            requested.add(eventId);
+            return CompletableFuture.completedFuture(eventId * 100);
+        });
+    }
+
+    private CapturedHit hit(String uri, String ip, LocalDateTime timestamp) {
+        return new CapturedHit(uri, ip, timestamp.toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        private MutableClock(LocalDateTime now) {
+            set(now);
+        }
+
+        void set(LocalDateTime now) {
+            instant = now.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
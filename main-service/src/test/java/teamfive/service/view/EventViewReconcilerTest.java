@@ -0,0 +1,138 @@
+package teamfive.service.view;
+
+import dto.StatDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import teamfive.client.CapturedHit;
+import teamfive.client.StatClient;
+import teamfive.service.config.EventViewProperties;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EventViewReconcilerTest {
+
+    private static final LocalDateTime STARTED = LocalDateTime.of(2024, 3, 1, 12, 0);
+    private static final long STARTED_MILLIS = STARTED.toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    @Mock
+    private StatClient statClient;
+
+    private final EventViewProperties properties = new EventViewProperties();
+    private final MutableClock clock = new MutableClock(STARTED);
+
+    @Test
+    void reconcile_ShouldReplaceLocalViewsWithServerViewsInBatches() {
+        properties.setReconcileBatchSize(2);
+        EventViewCounter counter = createCounter();
+        for (long eventId = 1; eventId <= 3; eventId++) {
+            counter.onHit(new CapturedHit("/events/" + eventId, "10.0.0.1", STARTED_MILLIS));
+        }
+        clock.set(STARTED.plusMinutes(3));
+        when(statClient.requireStats(eq("2000-01-01 00:00:00"), eq("2024-03-01 12:01:59"), anyList(), eq(true)))
+                .thenReturn(List.of(createStatDto("/events/1", 4L), createStatDto("/events/3", 2L)));
+
+        new EventViewReconciler(counter, statClient, properties).reconcile();
+
+        assertThat(counter.getViews(1L)).isEqualTo(4L);
+        assertThat(counter.getViews(2L)).isZero();
+        assertThat(counter.getViews(3L)).isEqualTo(2L);
+        verify(statClient, times(2)).requireStats(anyString(), anyString(), anyList(), any());
+    }
+
+    @Test
+    void reconcile_WithoutUniqueViews_ShouldQueryOnlyMinutesAfterPreviousReconcile() {
+        properties.setUnique(false);
+        EventViewCounter counter = createCounter();
+        counter.onHit(new CapturedHit("/events/1", "10.0.0.1", STARTED_MILLIS));
+        clock.set(STARTED.plusMinutes(3));
+        when(statClient.requireStats(eq("2000-01-01 00:00:00"), eq("2024-03-01 12:01:59"), anyList(), eq(false)))
+                .thenReturn(List.of(createStatDto("/events/1", 7L)));
+        when(statClient.requireStats(eq("2024-03-01 12:02:00"), eq("2024-03-01 12:04:59"), anyList(), eq(false)))
+                .thenReturn(List.of(createStatDto("/events/1", 3L)));
+        EventViewReconciler reconciler = new EventViewReconciler(counter, statClient, properties);
+
+        reconciler.reconcile();
+        clock.set(STARTED.plusMinutes(6));
+        reconciler.reconcile();
+
+        assertThat(counter.getViews(1L)).isEqualTo(10L);
+        verify(statClient, times(2)).requireStats(anyString(), anyString(), anyList(), any());
+    }
+
+    @Test
+    void reconcile_WhenServerFails_ShouldKeepLocalViews() {
+        properties.setUnique(false);
+        EventViewCounter counter = createCounter();
+        counter.onHit(new CapturedHit("/events/1", "10.0.0.1", STARTED_MILLIS));
+        clock.set(STARTED.plusMinutes(3));
+        when(statClient.requireStats(anyString(), anyString(), anyList(), any()))
+                .thenReturn(List.of(createStatDto("/events/1", 5L)))
+                .thenThrow(new IllegalStateException("недоступен"));
+        EventViewReconciler reconciler = new EventViewReconciler(counter, statClient, properties);
+        reconciler.reconcile();
+        counter.onHit(new CapturedHit("/events/1", "10.0.0.1", STARTED_MILLIS + 180_000));
+
+        clock.set(STARTED.plusMinutes(6));
+        reconciler.reconcile();
+
+        assertThat(counter.getViews(1L)).isEqualTo(6L);
+    }
+
+    private EventViewCounter createCounter() {
+        return new EventViewCounter(properties, clock, eventId -> CompletableFuture.completedFuture(0L));
+    }
+
+    private StatDto createStatDto(String uri, Long hits) {
+        StatDto statDto = new StatDto();
+        statDto.setApp("ewm-service");
+        statDto.setUri(uri);
+        statDto.setHits(hits);
+        return statDto;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        private MutableClock(LocalDateTime now) {
+            set(now);
+        }
+
+        void set(LocalDateTime now) {
+            instant = now.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package teamfive.benchmark;
+
+import dto.InputHitDto;
+import dto.OutHitDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import teamfive.service.StatService;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+public class CreateHitBenchmark {
+
+    @Param({"false", "true"})
+    private boolean writeBehind;
+
+    private ConfigurableApplicationContext context;
+    private StatService statService;
+
+    /**
+     * Производители быстрее потока записи, поэтому очередь заполняется сразу. Ожидание места не ограничено
+     * по времени: замеряется устойчивая пропускная способность записи, а не отказы 503.
+     */
+    @Setup
+    public void setUp() {
+        context = StatServerContext.start("stat.write-behind.enabled=" + writeBehind,
+                "stat.write-behind.block-timeout=10m");
+        statService = context.getBean(StatService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OutHitDto createHit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        InputHitDto inputHitDto = new InputHitDto();
+        inputHitDto.setApp("ewm-main-service");
+        inputHitDto.setUri("/events/" + random.nextInt(1_000));
+        inputHitDto.setIp("10.0." + random.nextInt(256) + "." + random.nextInt(256));
+        inputHitDto.setTimestamp(LocalDateTime.now().minusSeconds(random.nextInt(86_400)));
+        return statService.createHit(inputHitDto);
+    }
+}
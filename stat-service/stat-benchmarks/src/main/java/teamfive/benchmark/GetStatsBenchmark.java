@@ -0,0 +1,96 @@
+package teamfive.benchmark;
+
+import dto.StatDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import teamfive.model.Hit;
+import teamfive.service.HitWriter;
+import teamfive.service.StatService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Задержка GET /stats на заполненной H2. Кэш ответов выключен, чтобы каждый вызов доходил до базы.
+ * Для 10^7 строк нужна куча порядка 8 ГБ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class GetStatsBenchmark {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int DAYS = 30;
+    private static final int URIS = 1_000;
+    private static final int IPS = 50_000;
+    private static final int SEED_BATCH = 10_000;
+
+    @Param({"100000", "1000000", "10000000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean unique;
+
+    private ConfigurableApplicationContext context;
+    private StatService statService;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private List<String> uris;
+
+    @Setup
+    public void setUp() {
+        context = StatServerContext.start("stat.cache.enabled=false", "stat.sketch.enabled=false");
+        statService = context.getBean(StatService.class);
+        HitWriter hitWriter = context.getBean(HitWriter.class);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int seeded = 0; seeded < rows; seeded += SEED_BATCH) {
+            List<Hit> batch = new ArrayList<>(SEED_BATCH);
+            for (int i = 0; i < Math.min(SEED_BATCH, rows - seeded); i++) {
+                Hit hit = new Hit();
+                hit.setApp("ewm-main-service");
+                hit.setUri("/events/" + random.nextInt(URIS));
+                int ip = random.nextInt(IPS);
+                hit.setIp("10." + (ip >> 16) + "." + ((ip >> 8) & 255) + "." + (ip & 255));
+                hit.setTimestamp(BASE.plusSeconds(random.nextLong(DAYS * 86_400L)));
+                batch.add(hit);
+            }
+            hitWriter.saveAll(batch);
+        }
+        start = BASE.plusDays(10).plusMinutes(17);
+        end = BASE.plusDays(20).plusHours(5).plusMinutes(3);
+        uris = IntStream.range(0, 10).mapToObj(i -> "/events/" + i * 97).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<StatDto> statsForUris() {
+        return statService.getStats(start, end, uris, unique);
+    }
+
+    @Benchmark
+    public List<StatDto> statsForAllUris() {
+        return statService.getStats(start, end, null, unique);
+    }
+}
@@ -0,0 +1,67 @@
+package teamfive.benchmark;
+
+import dto.InputHitDto;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import teamfive.client.CapturedHit;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает снятие hit на пути запроса: прежний способ (InputHitDto, LocalDateTime.now(), split заголовка)
+ * и CapturedHit. Выделение памяти на hit видно с профилировщиком gc:
+ * java -jar target/benchmarks.jar HitCaptureBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HitCaptureBenchmark {
+
+    @Param({"", "203.0.113.7", "203.0.113.7, 10.0.0.1, 10.0.0.2"})
+    private String forwardedFor;
+
+    private HttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", "/events/42");
+        mockRequest.setRemoteAddr("192.168.1.1");
+        if (!forwardedFor.isEmpty()) {
+            mockRequest.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        request = mockRequest;
+    }
+
+    @Benchmark
+    public InputHitDto dtoCapture() {
+        InputHitDto hitDto = new InputHitDto();
+        hitDto.setApp("ewm-service");
+        hitDto.setUri(request.getRequestURI());
+        String xForwardedForHeader = request.getHeader("X-Forwarded-For");
+        hitDto.setIp(xForwardedForHeader != null && !xForwardedForHeader.isEmpty()
+                ? xForwardedForHeader.split(",")[0].trim()
+                : request.getRemoteAddr());
+        hitDto.setTimestamp(LocalDateTime.now());
+        return hitDto;
+    }
+
+    @Benchmark
+    public CapturedHit capturedHit() {
+        return CapturedHit.of(request, System.currentTimeMillis());
+    }
+}
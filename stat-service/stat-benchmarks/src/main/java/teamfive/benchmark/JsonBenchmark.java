@@ -0,0 +1,90 @@
+package teamfive.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dto.InputHitDto;
+import dto.StatDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final TypeReference<List<StatDto>> STATS_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Param({"10", "1000"})
+    private int statsSize;
+
+    private InputHitDto inputHitDto;
+    private byte[] inputHitJson;
+    private List<StatDto> stats;
+    private byte[] statsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        inputHitDto = new InputHitDto();
+        inputHitDto.setApp("ewm-main-service");
+        inputHitDto.setUri("/events/42");
+        inputHitDto.setIp("192.168.1.1");
+        inputHitDto.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        inputHitJson = objectMapper.writeValueAsBytes(inputHitDto);
+
+        stats = new ArrayList<>();
+        for (int i = 0; i < statsSize; i++) {
+            StatDto statDto = new StatDto();
+            statDto.setApp("ewm-main-service");
+            statDto.setUri("/events/" + i);
+            statDto.setHits((long) (statsSize - i) * 17);
+            stats.add(statDto);
+        }
+        statsJson = objectMapper.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public byte[] writeInputHitDto() throws IOException {
+        return objectMapper.writeValueAsBytes(inputHitDto);
+    }
+
+    @Benchmark
+    public InputHitDto readInputHitDto() throws IOException {
+        return objectMapper.readValue(inputHitJson, InputHitDto.class);
+    }
+
+    @Benchmark
+    public byte[] writeStats() throws IOException {
+        return objectMapper.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public List<StatDto> readStats() throws IOException {
+        return objectMapper.readValue(statsJson, STATS_TYPE);
+    }
+}
@@ -0,0 +1,64 @@
+package teamfive.benchmark;
+
+import dto.InputHitDto;
+import dto.OutHitDto;
+import dto.StatDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import teamfive.mapper.SimpleHitMapper;
+import teamfive.mapper.SimpleHitMapperImpl;
+import teamfive.model.Hit;
+import teamfive.model.StatHit;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    private final SimpleHitMapper mapper = new SimpleHitMapperImpl();
+
+    private InputHitDto inputHitDto;
+    private Hit hit;
+    private StatHit statHit;
+
+    @Setup
+    public void setUp() {
+        inputHitDto = new InputHitDto();
+        inputHitDto.setApp("ewm-main-service");
+        inputHitDto.setUri("/events/42");
+        inputHitDto.setIp("192.168.1.1");
+        inputHitDto.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        hit = mapper.dtoToHit(inputHitDto);
+        hit.setId(1L);
+        statHit = new StatHit("ewm-main-service", "/events/42", 100L);
+    }
+
+    @Benchmark
+    public Hit dtoToHit() {
+        return mapper.dtoToHit(inputHitDto);
+    }
+
+    @Benchmark
+    public OutHitDto hitToDto() {
+        return mapper.hitToDto(hit);
+    }
+
+    @Benchmark
+    public StatDto statHitToStatDto() {
+        return mapper.statHitToStatDto(statHit);
+    }
+}
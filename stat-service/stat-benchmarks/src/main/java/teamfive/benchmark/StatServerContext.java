@@ -0,0 +1,59 @@
+package teamfive.benchmark;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import teamfive.StatServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Контекст stat-server для бенчмарков. В classpath бенчмарков есть stat-client из того же пакета teamfive,
+ * поэтому сканирование StatServer подхватило бы StatClient с его обязательным stats-server-url.
+ * Контекст повторяет StatServer, но не сканирует teamfive.client и teamfive.benchmark; репозитории и сущности
+ * ищутся в пакете StatServer, как у него самого.
+ */
+final class StatServerContext {
+
+    private StatServerContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.teamfive=WARN",
+                "--stat.partition.enabled=false"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(BenchmarkServer.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @AutoConfigurationPackage(basePackageClasses = StatServer.class)
+    @EnableScheduling
+    @ConfigurationPropertiesScan(basePackageClasses = StatServer.class)
+    @ComponentScan(basePackageClasses = StatServer.class, excludeFilters = {
+            @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = StatServer.class),
+            @ComponentScan.Filter(type = FilterType.REGEX, pattern = "teamfive\\.(client|benchmark)\\..*")})
+    static class BenchmarkServer {
+    }
+}
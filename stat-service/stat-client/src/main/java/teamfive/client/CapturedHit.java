@@ -0,0 +1,51 @@
+package teamfive.client;
+
+import dto.InputHitDto;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Hit в том виде, в каком он снимается на пути запроса: uri, ip и время в миллисекундах от эпохи.
+ * В InputHitDto он превращается только при отправке, вне потока запроса.
+ */
+public record CapturedHit(String uri, String ip, long timestamp) {
+
+    public static CapturedHit of(HttpServletRequest request, long timestamp) {
+        return new CapturedHit(request.getRequestURI(),
+                clientIp(request.getHeader("X-Forwarded-For"), request.getRemoteAddr()), timestamp);
+    }
+
+    /**
+     * Первый адрес из X-Forwarded-For без пробелов по краям. Заголовок просматривается до первой запятой,
+     * поэтому остальная цепочка прокси не разбирается; заголовок из одного адреса возвращается как есть.
+     */
+    static String clientIp(String forwardedFor, String remoteAddr) {
+        if (forwardedFor == null || forwardedFor.isEmpty()) {
+            return remoteAddr;
+        }
+        int end = forwardedFor.indexOf(',');
+        if (end < 0) {
+            end = forwardedFor.length();
+        }
+        int start = 0;
+        while (start < end && forwardedFor.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && forwardedFor.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return forwardedFor.substring(start, end);
+    }
+
+    public InputHitDto toDto(String app, ZoneId zone) {
+        InputHitDto hitDto = new InputHitDto();
+        hitDto.setApp(app);
+        hitDto.setUri(uri);
+        hitDto.setIp(ip);
+        hitDto.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), zone));
+        return hitDto;
+    }
+}
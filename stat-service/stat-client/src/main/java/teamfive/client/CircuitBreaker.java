@@ -0,0 +1,88 @@
+package teamfive.client;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Размыкается после failureThreshold ошибок подряд и openDuration отклоняет вызовы без обращения
+ * к серверу. Затем пропускает один пробный вызов: успех замыкает цепь, ошибка снова размыкает.
+ * Состояние защищено ReentrantLock, а не synchronized: вызовы идут из виртуальных потоков.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(StatClientProperties.Breaker properties) {
+        this(properties, System::nanoTime);
+    }
+
+    CircuitBreaker(StatClientProperties.Breaker properties, LongSupplier nanoTime) {
+        this.failureThreshold = properties.getFailureThreshold();
+        this.openNanos = properties.getOpenDuration().toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> {
+                    if (nanoTime.getAsLong() - openedAt < openNanos) {
+                        yield false;
+                    }
+                    state = State.HALF_OPEN;
+                    yield true;
+                }
+                case HALF_OPEN -> false;
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            state = State.CLOSED;
+            failures = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = nanoTime.getAsLong();
+                failures = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
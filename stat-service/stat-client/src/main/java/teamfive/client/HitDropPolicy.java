@@ -0,0 +1,6 @@
+package teamfive.client;
+
+public enum HitDropPolicy {
+    DROP_NEWEST,
+    DROP_OLDEST
+}
@@ -0,0 +1,10 @@
+package teamfive.client;
+
+/**
+ * Получает каждый hit, снятый StatClient.hit, в потоке запроса. Реализация не должна блокироваться.
+ */
+@FunctionalInterface
+public interface HitListener {
+
+    void onHit(CapturedHit hit);
+}
@@ -0,0 +1,110 @@
+package teamfive.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+@Slf4j
+public class HitSender<T> implements AutoCloseable {
+
+    private final Consumer<List<T>> batchConsumer;
+    private final StatClientProperties.Async properties;
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread sender;
+
+    private volatile boolean running = true;
+
+    public HitSender(Consumer<List<T>> batchConsumer, StatClientProperties.Async properties) {
+        this.batchConsumer = batchConsumer;
+        this.properties = properties;
+        this.sender = Thread.ofVirtual()
+                .name("stat-hit-sender")
+                .start(this::runSender);
+    }
+
+    public void offer(T hit) {
+        if (size.get() >= properties.getMaxBuffer()) {
+            if (properties.getDropPolicy() == HitDropPolicy.DROP_NEWEST || !evictOldest()) {
+                dropped.increment();
+                return;
+            }
+        }
+        queue.offer(hit);
+        if (size.incrementAndGet() >= properties.getBatchSize()) {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(sender);
+        try {
+            sender.join(properties.getShutdownTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean evictOldest() {
+        if (queue.poll() == null) {
+            return false;
+        }
+        size.decrementAndGet();
+        dropped.increment();
+        return true;
+    }
+
+    private void runSender() {
+        long lingerNanos = properties.getLinger().toNanos();
+        while (running || size.get() > 0) {
+            if (running && size.get() < properties.getBatchSize()) {
+                LockSupport.parkNanos(this, lingerNanos);
+            }
+            List<T> batch = drainBatch();
+            while (!batch.isEmpty()) {
+                send(batch);
+                batch = drainBatch();
+            }
+        }
+    }
+
+    private List<T> drainBatch() {
+        int batchSize = properties.getBatchSize();
+        List<T> batch = new ArrayList<>();
+        while (batch.size() < batchSize) {
+            T hit = queue.poll();
+            if (hit == null) {
+                break;
+            }
+            batch.add(hit);
+        }
+        size.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void send(List<T> batch) {
+        try {
+            batchConsumer.accept(batch);
+        } catch (Exception e) {
+            log.error("Ошибка при отправке пачки hit: размер = {}. {}", batch.size(), e.getMessage());
+        }
+    }
+}
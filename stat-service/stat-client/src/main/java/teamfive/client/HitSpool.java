@@ -0,0 +1,326 @@
+package teamfive.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dto.InputHitDto;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Журнал неотправленных hit на диске: по одной JSON-строке на hit, запись только в конец файла.
+ * append только сериализует hit и ставит их в очередь, поэтому не обращается к диску в потоке запроса.
+ * Фоновый поток раз в syncInterval дописывает очередь в журнал и вызывает fsync один раз на всю запись:
+ * при аварийной остановке теряются hit не более чем за syncInterval. Другой фоновый поток раз в replayInterval переименовывает журнал в файл переотправки и отправляет его
+ * пачками, сохраняя смещение после каждой пачки. После сбоя переотправка продолжается с сохранённого
+ * смещения, поэтому hit может быть отправлен повторно, но не теряется. Журнал не растёт больше maxBytes:
+ * hit, которые в него не помещаются, отбрасываются и учитываются в getDroppedCount.
+ */
+@Slf4j
+public class HitSpool implements AutoCloseable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Path spoolFile;
+    private final Path replayFile;
+    private final Path offsetFile;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final Consumer<List<InputHitDto>> sender;
+    private final StatClientProperties.Spool properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final Thread replayer;
+    private final Thread syncer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private FileChannel channel;
+    private volatile long storedBytes;
+    private volatile boolean running = true;
+
+    public HitSpool(Consumer<List<InputHitDto>> sender, StatClientProperties.Spool properties,
+                    ObjectMapper objectMapper) {
+        this.sender = sender;
+        this.properties = properties;
+        this.writer = objectMapper.writerFor(InputHitDto.class);
+        this.reader = objectMapper.readerFor(InputHitDto.class);
+        Path directory = Path.of(properties.getDirectory());
+        this.spoolFile = directory.resolve("hits.spool");
+        this.replayFile = directory.resolve("hits.spool.replay");
+        this.offsetFile = directory.resolve("hits.spool.offset");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.storedBytes = computeStoredBytes();
+        this.replayer = Thread.ofVirtual()
+                .name("stat-hit-spool")
+                .start(this::runReplay);
+        this.syncer = Thread.ofVirtual()
+                .name("stat-hit-spool-sync")
+                .start(this::runSync);
+    }
+
+    /**
+     * Ставит hit в очередь записи в журнал и возвращает false, если журнал с ними превысил бы maxBytes.
+     */
+    public boolean append(List<InputHitDto> hits) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            for (InputHitDto hit : hits) {
+                out.write(writer.writeValueAsBytes(hit));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = out.toByteArray();
+        long queued;
+        do {
+            queued = pendingBytes.get();
+            if (storedBytes + queued + bytes.length > properties.getMaxBytes()) {
+                dropped.addAndGet(hits.size());
+                log.warn("Журнал hit заполнен, hit отброшены: количество = {}, maxBytes = {}", hits.size(),
+                        properties.getMaxBytes());
+                return false;
+            }
+        } while (!pendingBytes.compareAndSet(queued, queued + bytes.length));
+        pending.add(bytes);
+        return true;
+    }
+
+    /**
+     * Дописывает очередь в журнал и вызывает fsync, если что-то было записано.
+     */
+    void sync() throws IOException {
+        lock.lock();
+        try {
+            long written = 0;
+            try {
+                byte[] chunk;
+                while ((chunk = pending.peek()) != null) {
+                    if (channel == null) {
+                        channel = FileChannel.open(spoolFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                StandardOpenOption.APPEND);
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    pending.poll();
+                    written += chunk.length;
+                }
+            } finally {
+                if (written > 0) {
+                    storedBytes = computeStoredBytes();
+                    pendingBytes.addAndGet(-written);
+                }
+            }
+            if (written > 0) {
+                channel.force(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long sizeInBytes() {
+        return storedBytes + pendingBytes.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Отправляет накопленные hit и возвращает их количество. Ошибка отправки прерывает переотправку,
+     * уже отправленные пачки повторно не отправляются.
+     */
+    public int replay() throws IOException {
+        sync();
+        if (!Files.exists(replayFile) && !rotate()) {
+            return 0;
+        }
+        long position = readOffset();
+        int replayed = 0;
+        try (FileChannel in = FileChannel.open(replayFile, StandardOpenOption.READ)) {
+            in.position(position);
+            InputStream input = Channels.newInputStream(in);
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int filled = 0;
+            List<InputHitDto> batch = new ArrayList<>();
+            int read;
+            while ((read = input.read(buffer, filled, buffer.length - filled)) != -1) {
+                int lineStart = 0;
+                for (int i = filled; i < filled + read; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    parse(buffer, lineStart, i - lineStart, batch);
+                    position += i + 1 - lineStart;
+                    lineStart = i + 1;
+                    if (batch.size() >= properties.getBatchSize()) {
+                        sender.accept(batch);
+                        replayed += batch.size();
+                        writeOffset(position);
+                        storedBytes = computeStoredBytes();
+                        batch = new ArrayList<>();
+                    }
+                }
+                filled = filled + read - lineStart;
+                System.arraycopy(buffer, lineStart, buffer, 0, filled);
+                if (filled == buffer.length) {
+                    // запись длиннее буфера
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            if (!batch.isEmpty()) {
+                sender.accept(batch);
+                replayed += batch.size();
+            }
+        }
+        Files.delete(replayFile);
+        Files.deleteIfExists(offsetFile);
+        storedBytes = computeStoredBytes();
+        if (replayed > 0) {
+            log.info("Переотправлены hit из журнала: количество = {}", replayed);
+        }
+        return replayed;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(replayer);
+        LockSupport.unpark(syncer);
+        try {
+            replayer.join(properties.getReplayInterval());
+            syncer.join(properties.getSyncInterval());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            sync();
+        } catch (IOException e) {
+            log.warn("Не удалось записать hit в журнал при остановке. {}", e.getMessage());
+        } finally {
+            closeChannel();
+            lock.unlock();
+        }
+    }
+
+    private boolean rotate() throws IOException {
+        lock.lock();
+        try {
+            closeChannel();
+            if (fileSize(spoolFile) == 0) {
+                return false;
+            }
+            Files.move(spoolFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void parse(byte[] buffer, int offset, int length, List<InputHitDto> batch) {
+        try {
+            batch.add(reader.readValue(buffer, offset, length));
+        } catch (JsonProcessingException e) {
+            log.warn("Пропущена повреждённая запись журнала hit: {}",
+                    new String(buffer, offset, length, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void runReplay() {
+        long intervalNanos = properties.getReplayInterval().toNanos();
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            if (!running) {
+                break;
+            }
+            try {
+                replay();
+            } catch (Exception e) {
+                log.warn("Не удалось переотправить hit из журнала. {}", e.getMessage());
+            }
+        }
+    }
+
+    private void runSync() {
+        long intervalNanos = properties.getSyncInterval().toNanos();
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            try {
+                sync();
+            } catch (Exception e) {
+                log.warn("Не удалось записать hit в журнал. {}", e.getMessage());
+            }
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Ошибка закрытия журнала hit. {}", e.getMessage());
+        }
+        channel = null;
+    }
+
+    private long readOffset() {
+        try {
+            return Files.exists(offsetFile) ? Long.parseLong(Files.readString(offsetFile).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void writeOffset(long offset) throws IOException {
+        Path temp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+        Files.writeString(temp, Long.toString(offset));
+        Files.move(temp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long computeStoredBytes() {
+        return fileSize(spoolFile) + fileSize(replayFile) - readOffset();
+    }
+
+    private static long fileSize(Path file) {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -1,48 +1,148 @@
 package teamfive.client;
 
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 import dto.InputHitDto;
 import dto.StatDto;
+import dto.StatQueryDto;
 
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 public class StatClient {
+    private static final String REQUESTS = "stat.client.requests";
+    private static final String FAILURES = "stat.client.failures";
+    private static final String PAYLOAD_SIZE = "stat.client.payload.size";
+
     private final String serverUrl;
     private final String appName;
     private final RestClient restClient;
+    private final URI hitUri;
+    private final URI hitBatchUri;
+    private final URI statsQueryUri;
+    private final String statsPath;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final HitSender<CapturedHit> hitSender;
+    private final StatsNearCache statsCache;
+    private final StatsBatcher statsBatcher;
+    private final CircuitBreaker circuitBreaker;
+    private final HitSpool hitSpool;
+    private final MeterRegistry meterRegistry;
+    private final MediaType mediaType;
+    private final List<HitListener> hitListeners;
+
+    public StatClient(RestClient restClient, String serverUrl, String appName) {
+        this(restClient, serverUrl, appName, new StatClientProperties(), Metrics.globalRegistry);
+    }
 
+    @Autowired
     public StatClient(RestClient restClient,
                       @Value("${stats-server-url}") String serverUrl,
-                      @Value("${stat.app-name:ewm-service}") String appName) {
+                      @Value("${stat.app-name:ewm-service}") String appName,
+                      StatClientProperties properties,
+                      ObjectProvider<MeterRegistry> meterRegistry,
+                      ObjectProvider<HitListener> hitListeners) {
+        this(restClient, serverUrl, appName, properties, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                hitListeners.orderedStream().toList());
+    }
+
+    public StatClient(RestClient restClient, String serverUrl, String appName, StatClientProperties properties,
+                      MeterRegistry meterRegistry) {
+        this(restClient, serverUrl, appName, properties, meterRegistry, List.of());
+    }
+
+    public StatClient(RestClient restClient, String serverUrl, String appName, StatClientProperties properties,
+                      MeterRegistry meterRegistry, List<HitListener> hitListeners) {
         this.restClient = restClient;
         this.serverUrl = serverUrl;
         this.appName = appName;
+        this.hitUri = URI.create(serverUrl + "/hit");
+        this.hitBatchUri = URI.create(serverUrl + "/hit/batch");
+        this.statsQueryUri = URI.create(serverUrl + "/stats/query");
+        this.statsPath = serverUrl + "/stats";
+        this.meterRegistry = meterRegistry;
+        this.hitListeners = hitListeners;
+        this.mediaType = properties.getWireFormat().getMediaType();
+        this.circuitBreaker = properties.getCircuitBreaker().isEnabled()
+                ? new CircuitBreaker(properties.getCircuitBreaker())
+                : null;
+        this.hitSpool = properties.getSpool().isEnabled()
+                ? new HitSpool(this::sendHits, properties.getSpool(), JsonMapper.builder().findAndAddModules().build())
+                : null;
+        this.hitSender = properties.getAsync().isEnabled()
+                ? new HitSender<>(this::sendCaptured, properties.getAsync())
+                : null;
+        this.statsCache = properties.getCache().isEnabled()
+                ? new StatsNearCache(this::fetchStats, properties.getCache(), meterRegistry)
+                : null;
+        this.statsBatcher = properties.getBatch().isEnabled()
+                ? new StatsBatcher(this::fetchStats, properties.getBatch(), size ->
+                        DistributionSummary.builder("stat.client.batch.size")
+                                .baseUnit("uris")
+                                .register(meterRegistry)
+                                .record(size))
+                : null;
+        if (hitSender != null) {
+            Gauge.builder("stat.client.buffer.size", hitSender, HitSender::size)
+                    .register(meterRegistry);
+            FunctionCounter.builder("stat.client.hits.dropped", hitSender, HitSender::getDroppedCount)
+                    .register(meterRegistry);
+        }
+        if (circuitBreaker != null) {
+            Gauge.builder("stat.client.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                    .description("0 - замкнута, 1 - разомкнута, 2 - пробный вызов")
+                    .register(meterRegistry);
+        }
+        if (hitSpool != null) {
+            Gauge.builder("stat.client.spool.size", hitSpool, HitSpool::sizeInBytes)
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            FunctionCounter.builder("stat.client.spool.dropped", hitSpool, HitSpool::getDroppedCount)
+                    .register(meterRegistry);
+        }
     }
 
+    /**
+     * Регистрирует просмотр. При асинхронной отправке на пути запроса создаётся только CapturedHit,
+     * InputHitDto собирается потоком отправки. Снятый hit передаётся HitListener до отправки.
+     */
     public void hit(HttpServletRequest request) {
         try {
-            InputHitDto hitDto = new InputHitDto();
-            hitDto.setApp(appName);
-            hitDto.setUri(request.getRequestURI());
-            hitDto.setIp(getClientIpAddress(request));
-            hitDto.setTimestamp(LocalDateTime.now());
-
-            restClient.post().uri(serverUrl + "/hit")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(hitDto)
-                    .retrieve()
-                    .toBodilessEntity();
+            CapturedHit hit = CapturedHit.of(request, System.currentTimeMillis());
+            for (HitListener hitListener : hitListeners) {
+                hitListener.onHit(hit);
+            }
+            if (hitSender != null) {
+                hitSender.offer(hit);
+                return;
+            }
+            InputHitDto hitDto = hit.toDto(appName, zone);
+            sendOrSpool(List.of(hitDto), () -> sendHit(hitDto));
         } catch (Exception e) {
             log.error("Ошибка при отправке hit. {}", e.getMessage());
         }
@@ -59,38 +159,227 @@ public class StatClient {
         }
 
         try {
-            return restClient.get()
-                    .uri(uriBuilder -> {
-                        uriBuilder.path(serverUrl + "/stats")
-                                .queryParam("start", encodeValue(start))
-                                .queryParam("end", encodeValue(end))
-                                .queryParam("unique", unique);
-                        if (uris != null && !uris.isEmpty()) {
-                            uriBuilder.queryParam("uris", String.join(",", uris));
-                        }
-
-                        return uriBuilder.build();
-                    })
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<StatDto>>() {
-                    });
+            return statsCache != null
+                    ? statsCache.get(start, end, uris, unique)
+                    : fetchStats(start, end, uris, unique);
         } catch (Exception e) {
             log.error("Ошибка при получении статистики. {}", e.getMessage());
         }
         return List.of();
     }
 
-    private String encodeValue(String value) {
-        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    /**
+     * Статистика напрямую с сервера, без кэша. В отличие от getStats, ошибка сервера пробрасывается,
+     * поэтому пустой ответ можно отличить от недоступности сервера.
+     */
+    public List<StatDto> requireStats(String start, String end, List<String> uris, Boolean unique) {
+        return fetchStats(start, end, uris, unique);
+    }
+
+    /**
+     * Число просмотров одного uri. При включённом пакетировании одновременные вызовы объединяются
+     * в один запрос /stats, при ошибке возвращается 0.
+     */
+    public CompletableFuture<Long> getViewsAsync(String start, String end, String uri, Boolean unique) {
+        if (start == null || end == null) {
+            log.warn("Параметры start и end не могут быть null");
+            return CompletableFuture.completedFuture(0L);
+        }
+        if (statsBatcher == null) {
+            long views = getStats(start, end, List.of(uri), unique).stream().mapToLong(StatDto::getHits).sum();
+            return CompletableFuture.completedFuture(views);
+        }
+        return statsBatcher.getViews(start, end, uri, unique).exceptionally(e -> 0L);
+    }
+
+    /**
+     * Как getViewsAsync, но ошибка сервера завершает future исключением, а не возвращает 0.
+     */
+    public CompletableFuture<Long> requireViewsAsync(String start, String end, String uri, Boolean unique) {
+        if (statsBatcher == null) {
+            try {
+                return CompletableFuture.completedFuture(requireStats(start, end, List.of(uri), unique).stream()
+                        .mapToLong(StatDto::getHits)
+                        .sum());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return statsBatcher.getViews(start, end, uri, unique);
+    }
+
+    public Long getViews(String start, String end, String uri, Boolean unique) {
+        return getViewsAsync(start, end, uri, unique).join();
+    }
+
+    /**
+     * Статистика по нескольким интервалам одним запросом. Результаты идут в порядке запросов,
+     * при ошибке для каждого запроса возвращается пустой список.
+     */
+    public List<List<StatDto>> queryStats(List<StatQueryDto> queries) {
+        if (queries == null || queries.isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            List<List<StatDto>> stats = timed("stats_query", () -> restClient.post().uri(statsQueryUri)
+                    .contentType(mediaType)
+                    .body(queries)
+                    .accept(mediaType)
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<List<List<StatDto>>>() {
+                    }));
+            if (stats != null) {
+                recordPayloadSize("stats_query", stats.stream().mapToInt(List::size).sum());
+                return stats;
+            }
+        } catch (Exception e) {
+            log.error("Ошибка при получении статистики. {}", e.getMessage());
+        }
+        return queries.stream().map(query -> List.<StatDto>of()).toList();
     }
 
-    private String getClientIpAddress(HttpServletRequest request) {
+    @PreDestroy
+    public void close() {
+        if (hitSender != null) {
+            hitSender.close();
+        }
+        if (statsBatcher != null) {
+            statsBatcher.close();
+        }
+        if (statsCache != null) {
+            statsCache.close();
+        }
+        if (hitSpool != null) {
+            hitSpool.close();
+        }
+    }
 
-        String xForwardedForHeader = request.getHeader("X-Forwarded-For");
+    private List<StatDto> fetchStats(String start, String end, List<String> uris, Boolean unique) {
+        List<StatDto> stats = timed("stats", () -> restClient.get()
+                .uri(uriBuilder -> {
+                    uriBuilder.path(statsPath)
+                            .queryParam("start", encodeValue(start))
+                            .queryParam("end", encodeValue(end))
+                            .queryParam("unique", unique);
+                    if (uris != null && !uris.isEmpty()) {
+                        uriBuilder.queryParam("uris", String.join(",", uris));
+                    }
+
+                    return uriBuilder.build();
+                })
+                .accept(mediaType)
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<StatDto>>() {
+                }));
+        recordPayloadSize("stats", stats == null ? 0 : stats.size());
+        return stats == null ? List.of() : stats;
+    }
 
-        if (xForwardedForHeader != null && !xForwardedForHeader.isEmpty()) {
-            return xForwardedForHeader.split(",")[0].trim();
+    private void sendHits(List<InputHitDto> hits) {
+        recordPayloadSize("hit_batch", hits.size());
+        timed("hit_batch", () -> restClient.post().uri(hitBatchUri)
+                .contentType(mediaType)
+                .body(hits)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    private void sendCaptured(List<CapturedHit> hits) {
+        List<InputHitDto> hitDtos = new ArrayList<>(hits.size());
+        for (CapturedHit hit : hits) {
+            hitDtos.add(hit.toDto(appName, zone));
+        }
+        sendOrSpool(hitDtos, () -> sendHits(hitDtos));
+    }
+
+    /**
+     * Отправляет hit, а при ошибке сохраняет их в журнал на диске для повторной отправки.
+     * Без журнала ошибка пробрасывается вызывающему.
+     */
+    private void sendOrSpool(List<InputHitDto> hits, Runnable send) {
+        try {
+            send.run();
+        } catch (RuntimeException e) {
+            if (hitSpool == null) {
+                throw e;
+            }
+            if (hitSpool.append(hits)) {
+                log.warn("Сервер статистики недоступен, hit сохранены в журнал: количество = {}. {}", hits.size(),
+                        e.getMessage());
+            }
         }
-        return request.getRemoteAddr();
+    }
+
+    private void sendHit(InputHitDto hitDto) {
+        recordPayloadSize("hit", 1);
+        timed("hit", () -> restClient.post().uri(hitUri)
+                .contentType(mediaType)
+                .body(hitDto)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    /**
+     * Выполняет запрос и записывает метрики. Пока цепь разомкнута, запрос не выполняется и сразу
+     * завершается StatServerUnavailableException. Ответы 4xx не считаются отказом сервера.
+     */
+    private <T> T timed(String operation, Supplier<T> request) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+                throw new StatServerUnavailableException("Сервер статистики недоступен: цепь разомкнута");
+            }
+            T result;
+            try {
+                result = request.get();
+            } catch (HttpClientErrorException e) {
+                onRequestCompleted(true);
+                throw e;
+            } catch (RuntimeException e) {
+                onRequestCompleted(false);
+                throw e;
+            }
+            onRequestCompleted(true);
+            sample.stop(requestTimer(operation, "success"));
+            return result;
+        } catch (RuntimeException e) {
+            sample.stop(requestTimer(operation, "failure"));
+            Counter.builder(FAILURES)
+                    .tags("operation", operation, "exception", e.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        }
+    }
+
+    private void onRequestCompleted(boolean serverHealthy) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (serverHealthy) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    private Timer requestTimer(String operation, String outcome) {
+        return Timer.builder(REQUESTS)
+                .tags("operation", operation, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void recordPayloadSize(String operation, int size) {
+        DistributionSummary.builder(PAYLOAD_SIZE)
+                .baseUnit("items")
+                .tags("operation", operation)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    private String encodeValue(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
     }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package teamfive.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.Executors;
+import java.util.function.ToIntFunction;
+
+@Configuration
+@EnableConfigurationProperties(StatClientProperties.class)
+public class StatClientConfig {
+
+    /**
+     * При включённом пуле запросы идут через statHttpClient, иначе через JDK HttpClient.
+     * JDK HttpClient не использует synchronized на пути запроса, поэтому вызовы из виртуальных потоков
+     * не закрепляют поток-носитель. При включённых виртуальных потоках на них же выполняется и сам клиент.
+     * Таймауты ограничивают время, на которое недоступный сервер статистики задерживает вызывающий поток.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RestClient statRestClient(RestClient.Builder builder,
+                                     StatClientProperties properties,
+                                     @Qualifier("statHttpClient") ObjectProvider<CloseableHttpClient> statHttpClient,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        CloseableHttpClient pooledClient = statHttpClient.getIfAvailable();
+        ClientHttpRequestFactory requestFactory = pooledClient != null
+                ? new HttpComponentsClientHttpRequestFactory(pooledClient)
+                : jdkRequestFactory(properties, virtualThreads);
+        return builder
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    /**
+     * Apache HttpClient с пулом постоянных соединений к серверу статистики. Соединения, простаивающие
+     * дольше idleTimeout или живущие дольше timeToLive, закрываются фоновым потоком. Если свободного
+     * соединения нет дольше acquireTimeout, запрос завершается ошибкой. Состояние пула доступно
+     * в метриках stat.client.pool.*.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "stat.client.pool.enabled", havingValue = "true")
+    public CloseableHttpClient statHttpClient(StatClientProperties properties,
+                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        StatClientProperties.Pool pool = properties.getPool();
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pool.getMaxTotal())
+                .setMaxConnPerRoute(pool.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                        .setTimeToLive(TimeValue.of(pool.getTimeToLive()))
+                        .setValidateAfterInactivity(TimeValue.of(pool.getValidateAfterInactivity()))
+                        .build())
+                .build();
+        registerPoolMetrics(connectionManager, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(pool.getAcquireTimeout()))
+                        .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(pool.getIdleTimeout()))
+                .build();
+    }
+
+    private ClientHttpRequestFactory jdkRequestFactory(StatClientProperties properties, boolean virtualThreads) {
+        HttpClient.Builder httpClient = HttpClient.newBuilder()
+                .connectTimeout(properties.getConnectTimeout());
+        if (virtualThreads) {
+            httpClient.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient.build());
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+        return requestFactory;
+    }
+
+    private void registerPoolMetrics(PoolingHttpClientConnectionManager connectionManager,
+                                     MeterRegistry meterRegistry) {
+        registerPoolGauge(connectionManager, meterRegistry, "leased", PoolStats::getLeased);
+        registerPoolGauge(connectionManager, meterRegistry, "available", PoolStats::getAvailable);
+        registerPoolGauge(connectionManager, meterRegistry, "pending", PoolStats::getPending);
+        Gauge.builder("stat.client.pool.max", connectionManager, manager -> manager.getTotalStats().getMax())
+                .register(meterRegistry);
+    }
+
+    private void registerPoolGauge(PoolingHttpClientConnectionManager connectionManager, MeterRegistry meterRegistry,
+                                   String state, ToIntFunction<PoolStats> value) {
+        Gauge.builder("stat.client.pool.connections", connectionManager,
+                        manager -> value.applyAsInt(manager.getTotalStats()))
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+}
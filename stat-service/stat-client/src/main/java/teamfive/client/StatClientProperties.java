@@ -0,0 +1,113 @@
+package teamfive.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stat.client")
+public class StatClientProperties {
+
+    private Async async = new Async();
+
+    private Cache cache = new Cache();
+
+    private Batch batch = new Batch();
+
+    private WireFormat wireFormat = WireFormat.JSON;
+
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    private Duration readTimeout = Duration.ofSeconds(2);
+
+    private Breaker circuitBreaker = new Breaker();
+
+    private Spool spool = new Spool();
+
+    private Pool pool = new Pool();
+
+    @Data
+    public static class Async {
+
+        private boolean enabled = false;
+
+        private int batchSize = 100;
+
+        private Duration linger = Duration.ofMillis(100);
+
+        private int maxBuffer = 10_000;
+
+        private HitDropPolicy dropPolicy = HitDropPolicy.DROP_OLDEST;
+
+        private Duration shutdownTimeout = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean enabled = false;
+
+        private Duration ttl = Duration.ofSeconds(10);
+
+        private boolean staleWhileRevalidate = true;
+
+        private Duration maxStale = Duration.ofMinutes(1);
+
+        private long maximumSize = 10_000;
+    }
+
+    @Data
+    public static class Batch {
+
+        private boolean enabled = false;
+
+        private Duration linger = Duration.ofMillis(5);
+
+        private int maxSize = 100;
+    }
+
+    @Data
+    public static class Breaker {
+
+        private boolean enabled = true;
+
+        private int failureThreshold = 5;
+
+        private Duration openDuration = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Spool {
+
+        private boolean enabled = false;
+
+        private String directory = "spool/stat-client";
+
+        private Duration replayInterval = Duration.ofSeconds(5);
+
+        private Duration syncInterval = Duration.ofSeconds(1);
+
+        private int batchSize = 500;
+
+        private long maxBytes = 64L * 1024 * 1024;
+    }
+
+    @Data
+    public static class Pool {
+
+        private boolean enabled = false;
+
+        private int maxTotal = 50;
+
+        private int maxPerRoute = 20;
+
+        private Duration idleTimeout = Duration.ofSeconds(30);
+
+        private Duration timeToLive = Duration.ofMinutes(5);
+
+        private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+        private Duration acquireTimeout = Duration.ofMillis(500);
+    }
+}
@@ -0,0 +1,8 @@
+package teamfive.client;
+
+public class StatServerUnavailableException extends RuntimeException {
+
+    public StatServerUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,190 @@
+package teamfive.client;
+
+import dto.StatDto;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Собирает запросы просмотров отдельных uri, пришедшие в течение linger, в один вызов /stats
+ * со списком uri. Запросы группируются по start, unique и end; end в пределах секунды от текущего
+ * момента считается «сейчас», и пакет запрашивается с самым поздним из них.
+ * Один uri в пакете запрашивается один раз, все ожидающие получают один результат.
+ * close() отправляет открытые пакеты сразу; пакеты, которые не удалось отправить после закрытия,
+ * завершаются CancellationException.
+ */
+@Slf4j
+public class StatsBatcher implements AutoCloseable {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final StatsNearCache.StatsLoader loader;
+    private final StatClientProperties.Batch properties;
+    private final IntConsumer batchSizeListener;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Executor delayedExecutor;
+    private final Map<BatchKey, Batch> open = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    public StatsBatcher(StatsNearCache.StatsLoader loader, StatClientProperties.Batch properties,
+                        IntConsumer batchSizeListener) {
+        this.loader = loader;
+        this.properties = properties;
+        this.batchSizeListener = batchSizeListener;
+        this.delayedExecutor = CompletableFuture.delayedExecutor(properties.getLinger().toNanos(),
+                TimeUnit.NANOSECONDS, Runnable::run);
+    }
+
+    public CompletableFuture<Long> getViews(String start, String end, String uri, Boolean unique) {
+        if (closed) {
+            return CompletableFuture.failedFuture(cancelled());
+        }
+        BatchKey key = new BatchKey(start, isLive(end) ? null : end, Boolean.TRUE.equals(unique));
+        while (true) {
+            Batch batch = open.computeIfAbsent(key, k -> {
+                Batch created = new Batch(k);
+                delayedExecutor.execute(() -> submit(created));
+                return created;
+            });
+            CompletableFuture<Long> views = batch.add(uri, end);
+            if (views != null) {
+                if (closed) {
+                    // close() мог пройти по open до того, как пакет в него попал
+                    cancel(batch);
+                } else if (batch.size() >= properties.getMaxSize()) {
+                    submit(batch);
+                }
+                return views;
+            }
+            open.remove(key, batch);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        open.values().forEach(this::flush);
+        executor.shutdown();
+    }
+
+    private void submit(Batch batch) {
+        try {
+            executor.execute(() -> flush(batch));
+        } catch (RejectedExecutionException e) {
+            cancel(batch);
+        }
+    }
+
+    private void cancel(Batch batch) {
+        open.remove(batch.key, batch);
+        Map<String, CompletableFuture<Long>> waiting = batch.close();
+        if (waiting != null) {
+            waiting.values().forEach(future -> future.completeExceptionally(cancelled()));
+        }
+    }
+
+    private static CancellationException cancelled() {
+        return new CancellationException("Пакетирование запросов статистики остановлено");
+    }
+
+    private void flush(Batch batch) {
+        open.remove(batch.key, batch);
+        Map<String, CompletableFuture<Long>> waiting = batch.close();
+        if (waiting == null) {
+            return;
+        }
+        batchSizeListener.accept(waiting.size());
+        try {
+            List<StatDto> stats = loader.load(batch.key.start(), batch.end, new ArrayList<>(waiting.keySet()),
+                    batch.key.unique());
+            Map<String, Long> views = new HashMap<>();
+            for (StatDto statDto : stats) {
+                views.merge(statDto.getUri(), statDto.getHits(), Long::sum);
+            }
+            waiting.forEach((uri, future) -> future.complete(views.getOrDefault(uri, 0L)));
+        } catch (RuntimeException e) {
+            log.error("Ошибка при получении статистики для пакета: количество uri = {}. {}", waiting.size(),
+                    e.getMessage());
+            waiting.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private boolean isLive(String end) {
+        try {
+            return !LocalDateTime.parse(end, FORMATTER).isBefore(LocalDateTime.now().minusSeconds(1));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private record BatchKey(String start, String end, boolean unique) {
+    }
+
+    private static final class Batch {
+
+        private final BatchKey key;
+        private final Map<String, CompletableFuture<Long>> waiting = new LinkedHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private String end;
+        private boolean closed;
+
+        private Batch(BatchKey key) {
+            this.key = key;
+        }
+
+        CompletableFuture<Long> add(String uri, String requestEnd) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return null;
+                }
+                if (end == null || requestEnd.compareTo(end) > 0) {
+                    end = requestEnd;
+                }
+                return waiting.computeIfAbsent(uri, u -> new CompletableFuture<>());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return waiting.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Map<String, CompletableFuture<Long>> close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return null;
+                }
+                closed = true;
+                return waiting;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package teamfive.client;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import dto.StatDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Кэш ответов /stats на стороне клиента. Одновременные запросы с одинаковым ключом ждут один вызов
+ * сервера. Если end отстоит от текущего момента не больше чем на ttl, он не входит в ключ: такие
+ * запросы считаются запросами «до сейчас», и при загрузке end подставляется заново.
+ * При staleWhileRevalidate запись старше ttl отдаётся сразу, а обновляется в фоне, пока ей не больше ttl + maxStale.
+ * Ошибки сервера не кэшируются. Загрузки выполняются в виртуальных потоках, которые останавливает close().
+ */
+public class StatsNearCache implements AutoCloseable {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AsyncLoadingCache<Key, List<StatDto>> cache;
+    private final Duration ttl;
+
+    public StatsNearCache(StatsLoader loader, StatClientProperties.Cache properties, MeterRegistry meterRegistry) {
+        this(loader, properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    StatsNearCache(StatsLoader loader, StatClientProperties.Cache properties, MeterRegistry meterRegistry,
+                   Ticker ticker) {
+        this.ttl = properties.getTtl();
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .executor(executor)
+                .ticker(ticker)
+                .recordStats();
+        if (properties.isStaleWhileRevalidate()) {
+            builder.refreshAfterWrite(ttl).expireAfterWrite(ttl.plus(properties.getMaxStale()));
+        } else {
+            builder.expireAfterWrite(ttl);
+        }
+        this.cache = builder.buildAsync(key -> loader.load(key.start(),
+                key.end() == null ? LocalDateTime.now().format(FORMATTER) : key.end(), key.uris(), key.unique()));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "stat-client-stats");
+    }
+
+    public List<StatDto> get(String start, String end, List<String> uris, Boolean unique) {
+        Key key = new Key(start, isLive(end) ? null : end,
+                uris == null ? null : uris.stream().distinct().sorted().toList(), Boolean.TRUE.equals(unique));
+        CompletableFuture<List<StatDto>> future = cache.get(key);
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            cache.asMap().remove(key, future);
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private boolean isLive(String end) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime parsed = LocalDateTime.parse(end, FORMATTER);
+            return !parsed.isBefore(now.minus(ttl)) && !parsed.isAfter(now.plus(ttl));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    public interface StatsLoader {
+        List<StatDto> load(String start, String end, List<String> uris, Boolean unique);
+    }
+
+    private record Key(String start, String end, List<String> uris, boolean unique) {
+    }
+}
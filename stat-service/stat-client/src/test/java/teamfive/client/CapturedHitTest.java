@@ -0,0 +1,39 @@
+package teamfive.client;
+
+import dto.InputHitDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CapturedHitTest {
+
+    @Test
+    void clientIp_ShouldTakeFirstForwardedAddress() {
+        assertThat(CapturedHit.clientIp("203.0.113.7, 10.0.0.1, 10.0.0.2", "10.0.0.9")).isEqualTo("203.0.113.7");
+        assertThat(CapturedHit.clientIp("  203.0.113.7 ,10.0.0.1", "10.0.0.9")).isEqualTo("203.0.113.7");
+        assertThat(CapturedHit.clientIp("203.0.113.7", "10.0.0.9")).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void clientIp_WithoutForwardedHeader_ShouldUseRemoteAddress() {
+        assertThat(CapturedHit.clientIp(null, "10.0.0.9")).isEqualTo("10.0.0.9");
+        assertThat(CapturedHit.clientIp("", "10.0.0.9")).isEqualTo("10.0.0.9");
+    }
+
+    @Test
+    void toDto_ShouldConvertEpochMillisInGivenZone() {
+        long timestamp = LocalDateTime.of(2024, 1, 1, 12, 0, 5).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        InputHitDto hitDto = new CapturedHit("/events/1", "10.0.0.9", timestamp)
+                .toDto("ewm-service", ZoneId.of("Europe/Moscow"));
+
+        assertThat(hitDto.getApp()).isEqualTo("ewm-service");
+        assertThat(hitDto.getUri()).isEqualTo("/events/1");
+        assertThat(hitDto.getIp()).isEqualTo("10.0.0.9");
+        assertThat(hitDto.getTimestamp()).isEqualTo(LocalDateTime.of(2024, 1, 1, 15, 0, 5));
+    }
+}
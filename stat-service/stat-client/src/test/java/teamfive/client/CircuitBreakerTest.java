@@ -0,0 +1,73 @@
+package teamfive.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final CircuitBreaker breaker = createBreaker();
+
+    @Test
+    void onFailure_AfterThresholdInARow_ShouldOpen() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void tryAcquire_AfterOpenDuration_ShouldLetOneTrialCallThrough() {
+        open();
+
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void onFailure_OfTrialCall_ShouldOpenAgain() {
+        open();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.tryAcquire();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        nanos.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+    }
+
+    private CircuitBreaker createBreaker() {
+        StatClientProperties.Breaker properties = new StatClientProperties.Breaker();
+        properties.setFailureThreshold(3);
+        properties.setOpenDuration(Duration.ofSeconds(10));
+        return new CircuitBreaker(properties, nanos::get);
+    }
+}
@@ -0,0 +1,167 @@
+package teamfive.client;
+
+import dto.InputHitDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitSenderTest {
+
+    private final List<List<InputHitDto>> sentBatches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch consumerLatch = new CountDownLatch(1);
+    private StatClientProperties.Async properties;
+    private HitSender<InputHitDto> hitSender;
+
+    @BeforeEach
+    void setUp() {
+        properties = new StatClientProperties.Async();
+        properties.setEnabled(true);
+        properties.setBatchSize(3);
+        properties.setLinger(Duration.ofMillis(50));
+        properties.setMaxBuffer(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumerLatch.countDown();
+        if (hitSender != null) {
+            hitSender.close();
+        }
+    }
+
+    @Test
+    void offer_ShouldSendHitsInBatches() throws InterruptedException {
+        properties.setLinger(Duration.ofSeconds(10));
+        hitSender = new HitSender<>(sentBatches::add, properties);
+
+        for (int i = 0; i < 3; i++) {
+            hitSender.offer(createHit("/events/" + i));
+        }
+
+        awaitSent(3);
+        assertThat(sentBatches).hasSize(1);
+        assertThat(sentBatches.get(0)).extracting(InputHitDto::getUri)
+                .containsExactly("/events/0", "/events/1", "/events/2");
+    }
+
+    @Test
+    void offer_ShouldSendPartialBatchAfterLinger() throws InterruptedException {
+        hitSender = new HitSender<>(sentBatches::add, properties);
+
+        hitSender.offer(createHit("/events/1"));
+
+        awaitSent(1);
+        assertThat(sentBatches.get(0)).hasSize(1);
+    }
+
+    @Test
+    void offer_WithDropNewestPolicy_ShouldKeepBufferedHits() throws InterruptedException {
+        properties.setDropPolicy(HitDropPolicy.DROP_NEWEST);
+        hitSender = startBlocked();
+
+        hitSender.offer(createHit("/events/1"));
+        hitSender.offer(createHit("/events/2"));
+        hitSender.offer(createHit("/events/3"));
+
+        assertThat(hitSender.getDroppedCount()).isEqualTo(1);
+        consumerLatch.countDown();
+        hitSender.close();
+        assertThat(sentUris()).containsExactly("/events/0", "/events/1", "/events/2");
+    }
+
+    @Test
+    void offer_WithDropOldestPolicy_ShouldEvictOldestHit() throws InterruptedException {
+        properties.setDropPolicy(HitDropPolicy.DROP_OLDEST);
+        hitSender = startBlocked();
+
+        hitSender.offer(createHit("/events/1"));
+        hitSender.offer(createHit("/events/2"));
+        hitSender.offer(createHit("/events/3"));
+
+        assertThat(hitSender.getDroppedCount()).isEqualTo(1);
+        consumerLatch.countDown();
+        hitSender.close();
+        assertThat(sentUris()).containsExactly("/events/0", "/events/2", "/events/3");
+    }
+
+    @Test
+    void close_ShouldFlushBufferedHits() {
+        properties.setLinger(Duration.ofSeconds(10));
+        hitSender = new HitSender<>(sentBatches::add, properties);
+
+        hitSender.offer(createHit("/events/1"));
+        hitSender.close();
+
+        assertThat(sentUris()).containsExactly("/events/1");
+    }
+
+    @Test
+    void offer_WhenConsumerFails_ShouldKeepSending() throws InterruptedException {
+        properties.setBatchSize(1);
+        hitSender = new HitSender<>(batch -> {
+            if (batch.get(0).getUri().equals("/events/1")) {
+                throw new IllegalStateException("stat-server down");
+            }
+            sentBatches.add(batch);
+        }, properties);
+
+        hitSender.offer(createHit("/events/1"));
+        hitSender.offer(createHit("/events/2"));
+
+        awaitSent(1);
+        assertThat(sentUris()).containsExactly("/events/2");
+    }
+
+    private HitSender<InputHitDto> startBlocked() throws InterruptedException {
+        properties.setBatchSize(1);
+        properties.setMaxBuffer(2);
+        HitSender<InputHitDto> sender = new HitSender<>(batch -> {
+            try {
+                consumerLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sentBatches.add(batch);
+        }, properties);
+        sender.offer(createHit("/events/0"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sender.size() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(sender.size()).isZero();
+        return sender;
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sentUris().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(sentUris()).hasSize(count);
+    }
+
+    private List<String> sentUris() {
+        return sentBatches.stream()
+                .flatMap(List::stream)
+                .map(InputHitDto::getUri)
+                .toList();
+    }
+
+    private InputHitDto createHit(String uri) {
+        InputHitDto hitDto = new InputHitDto();
+        hitDto.setApp("ewm-main-service");
+        hitDto.setUri(uri);
+        hitDto.setIp("192.168.1.1");
+        hitDto.setTimestamp(LocalDateTime.now());
+        return hitDto;
+    }
+}
@@ -0,0 +1,161 @@
+package teamfive.client;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dto.InputHitDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HitSpoolTest {
+
+    @TempDir
+    private Path directory;
+
+    private final List<List<InputHitDto>> sent = new CopyOnWriteArrayList<>();
+    private HitSpool spool;
+
+    @AfterEach
+    void tearDown() {
+        spool.close();
+    }
+
+    @Test
+    void replay_ShouldSendAppendedHitsInBatchesAndClearSpool() throws Exception {
+        spool = createSpool(sent::add);
+
+        spool.append(createHits(0, 3));
+        spool.append(createHits(3, 5));
+
+        assertThat(spool.replay()).isEqualTo(5);
+        assertThat(sent).hasSize(3);
+        assertThat(sent.stream().flatMap(List::stream).map(InputHitDto::getUri))
+                .containsExactly("/events/0", "/events/1", "/events/2", "/events/3", "/events/4");
+        assertThat(sent.get(0).get(0).getTimestamp()).isEqualTo(LocalDateTime.of(2024, 1, 1, 12, 0));
+        assertThat(spool.sizeInBytes()).isZero();
+        assertThat(spool.replay()).isZero();
+    }
+
+    @Test
+    void replay_AfterFailure_ShouldResumeFromLastSentBatch() throws Exception {
+        List<Boolean> failures = new ArrayList<>(List.of(false, true));
+        spool = createSpool(hits -> {
+            if (!failures.isEmpty() && failures.remove(0)) {
+                throw new StatServerUnavailableException("недоступен");
+            }
+            sent.add(hits);
+        });
+        spool.append(createHits(0, 5));
+
+        assertThatThrownBy(() -> spool.replay()).isInstanceOf(StatServerUnavailableException.class);
+        spool.append(createHits(5, 6));
+
+        assertThat(spool.replay()).isEqualTo(3);
+        assertThat(spool.replay()).isEqualTo(1);
+        assertThat(sent.stream().flatMap(List::stream).map(InputHitDto::getUri))
+                .containsExactly("/events/0", "/events/1", "/events/2", "/events/3", "/events/4", "/events/5");
+    }
+
+    @Test
+    void replay_WithTornRecord_ShouldSkipIt() throws Exception {
+        spool = createSpool(sent::add);
+        spool.append(createHits(0, 1));
+        spool.sync();
+        Files.writeString(directory.resolve("hits.spool"), "{\"app\":\"ewm\n", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        spool.append(createHits(1, 2));
+
+        assertThat(spool.replay()).isEqualTo(2);
+        assertThat(sent.stream().flatMap(List::stream).map(InputHitDto::getUri))
+                .containsExactly("/events/0", "/events/1");
+    }
+
+    @Test
+    void replay_WithRecordsAcrossReadBuffers_ShouldSendEveryHit() throws Exception {
+        spool = createSpool(sent::add);
+        spool.append(createHits(0, 3_001));
+
+        assertThat(spool.replay()).isEqualTo(3_001);
+        assertThat(sent.stream().flatMap(List::stream).map(InputHitDto::getUri))
+                .containsExactlyElementsOf(createHits(0, 3_001).stream().map(InputHitDto::getUri).toList());
+    }
+
+    @Test
+    void append_WhenSpoolIsFull_ShouldDropHits() throws Exception {
+        spool = createSpool(sent::add, 1_000);
+
+        assertThat(spool.append(createHits(0, 5))).isTrue();
+        long size = spool.sizeInBytes();
+        assertThat(spool.append(createHits(5, 100))).isFalse();
+
+        assertThat(spool.sizeInBytes()).isEqualTo(size);
+        assertThat(spool.getDroppedCount()).isEqualTo(95);
+        assertThat(spool.replay()).isEqualTo(5);
+        assertThat(spool.append(createHits(5, 10))).isTrue();
+    }
+
+    @Test
+    void append_ShouldWriteSpoolOnlyOnSync() throws Exception {
+        spool = createSpool(sent::add);
+
+        assertThat(spool.append(createHits(0, 3))).isTrue();
+        assertThat(directory.resolve("hits.spool")).doesNotExist();
+        long size = spool.sizeInBytes();
+
+        spool.sync();
+        assertThat(Files.size(directory.resolve("hits.spool"))).isEqualTo(size);
+        assertThat(spool.sizeInBytes()).isEqualTo(size);
+    }
+
+    @Test
+    void close_ShouldWritePendingHits() throws Exception {
+        HitSpool closed = createSpool(sent::add);
+        closed.append(createHits(0, 3));
+        closed.close();
+
+        spool = createSpool(sent::add);
+        assertThat(spool.replay()).isEqualTo(3);
+    }
+
+    private HitSpool createSpool(Consumer<List<InputHitDto>> sender) {
+        return createSpool(sender, new StatClientProperties.Spool().getMaxBytes());
+    }
+
+    private HitSpool createSpool(Consumer<List<InputHitDto>> sender, long maxBytes) {
+        StatClientProperties.Spool properties = new StatClientProperties.Spool();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setReplayInterval(Duration.ofHours(1));
+        properties.setSyncInterval(Duration.ofHours(1));
+        properties.setBatchSize(2);
+        properties.setMaxBytes(maxBytes);
+        return new HitSpool(sender, properties, JsonMapper.builder().findAndAddModules().build());
+    }
+
+    private List<InputHitDto> createHits(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> {
+                    InputHitDto hitDto = new InputHitDto();
+                    hitDto.setApp("ewm-service");
+                    hitDto.setUri("/events/" + i);
+                    hitDto.setIp("192.168.1.1");
+                    hitDto.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+                    return hitDto;
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,80 @@
+package teamfive.client;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatClientConfigTest {
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(StatClientConfig.class)
+            .withBean(RestClient.Builder.class, RestClient::builder)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stats", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void statRestClient_WithPool_ShouldReuseConnectionAndExposePoolMetrics() {
+        contextRunner
+                .withPropertyValues("stat.client.pool.enabled=true", "stat.client.pool.max-total=7")
+                .run(context -> {
+                    RestClient restClient = context.getBean(RestClient.class);
+                    for (int i = 0; i < 10; i++) {
+                        restClient.get().uri(serverUrl() + "/stats").retrieve().body(String.class);
+                    }
+
+                    MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+                    assertThat(clientPorts).hasSize(1);
+                    assertThat(meterRegistry.get("stat.client.pool.max").gauge().value()).isEqualTo(7);
+                    assertThat(meterRegistry.get("stat.client.pool.connections").tag("state", "available")
+                            .gauge().value()).isEqualTo(1);
+                    assertThat(meterRegistry.get("stat.client.pool.connections").tag("state", "leased")
+                            .gauge().value()).isZero();
+                });
+    }
+
+    @Test
+    void statRestClient_WithoutPool_ShouldNotCreatePooledClient() {
+        contextRunner.run(context -> {
+            context.getBean(RestClient.class).get().uri(serverUrl() + "/stats").retrieve().body(String.class);
+
+            assertThat(context).doesNotHaveBean("statHttpClient");
+            assertThat(context.getBean(MeterRegistry.class).find("stat.client.pool.max").gauge()).isNull();
+        });
+    }
+
+    private String serverUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
@@ -4,13 +4,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import dto.InputHitDto;
 import dto.StatDto;
+import dto.StatQueryDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.web.client.RestClient;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.function.Function;
@@ -34,6 +39,9 @@ class StatClientTest {
     @Mock
     private RestClient.RequestHeadersUriSpec requestHeadersUriSpec;
 
+    @Mock
+    private RestClient.RequestBodyUriSpec requestBodyUriSpec;
+
 
     private StatClient statClient;
     private ObjectMapper objectMapper;
@@ -56,6 +64,7 @@ class StatClientTest {
 
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.accept(any())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
         when(responseSpec.body((Class<Object>) any())).thenReturn(List.of());
 
@@ -73,6 +82,7 @@ class StatClientTest {
 
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.accept(any())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
         when(responseSpec.body((Class<Object>) any())).thenReturn(List.of());
 
@@ -91,6 +101,7 @@ class StatClientTest {
 
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.accept(any())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
         when(responseSpec.body((Class<Object>) any())).thenReturn(List.of());
 
@@ -109,6 +120,7 @@ class StatClientTest {
 
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.accept(any())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
         when(responseSpec.body((Class<Object>) any())).thenReturn(List.of());
 
@@ -118,6 +130,96 @@ class StatClientTest {
         verify(restClient).get();
     }
 
+    @Test
+    void getStats_ShouldRecordLatencyFailuresAndPayloadSize() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StatClient client = new StatClient(restClient, serverUrl, appName, new StatClientProperties(),
+                meterRegistry);
+
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.accept(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.body((ParameterizedTypeReference<Object>) any()))
+                .thenReturn(List.of(createStatDto("ewm-service", "/events/1", 3L)))
+                .thenThrow(new IllegalStateException("недоступен"));
+
+        client.getStats("2024-01-01 00:00:00", "2024-01-02 00:00:00", null, false);
+        client.getStats("2024-01-01 00:00:00", "2024-01-02 00:00:00", null, false);
+
+        assertThat(meterRegistry.get("stat.client.requests").tags("operation", "stats", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stat.client.requests").tags("operation", "stats", "outcome", "failure")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stat.client.failures").tags("exception", "IllegalStateException")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stat.client.payload.size").tags("operation", "stats")
+                .summary().totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    void queryStats_WhenServerFails_ShouldReturnEmptyListPerQuery() {
+        LocalDateTime day = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<StatQueryDto> queries = List.of(
+                new StatQueryDto(day, day.plusDays(1), null, false),
+                new StatQueryDto(day.plusDays(1), day.plusDays(2), List.of("/events/1"), true));
+
+        when(restClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(URI.create(serverUrl + "/stats/query"))).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.contentType(any())).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.body(queries)).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.accept(any())).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.body((ParameterizedTypeReference<Object>) any()))
+                .thenReturn(List.of(List.of(createStatDto("ewm-service", "/events/1", 3L)), List.of()))
+                .thenThrow(new IllegalStateException("недоступен"));
+
+        assertThat(statClient.queryStats(queries)).hasSize(2).first().asList().hasSize(1);
+        assertThat(statClient.queryStats(queries)).containsExactly(List.of(), List.of());
+        assertThat(statClient.queryStats(List.of())).isEmpty();
+    }
+
+    @Test
+    void getStats_WithCborWireFormat_ShouldAcceptCbor() {
+        StatClientProperties properties = new StatClientProperties();
+        properties.setWireFormat(WireFormat.CBOR);
+        StatClient client = new StatClient(restClient, serverUrl, appName, properties, new SimpleMeterRegistry());
+
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.accept(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.body((ParameterizedTypeReference<Object>) any())).thenReturn(List.of());
+
+        client.getStats("2024-01-01 00:00:00", "2024-01-02 00:00:00", null, false);
+
+        verify(requestHeadersSpec).accept(MediaType.APPLICATION_CBOR);
+    }
+
+    @Test
+    void getStats_WhenCircuitIsOpen_ShouldFailFastWithoutCallingServer() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StatClientProperties properties = new StatClientProperties();
+        properties.getCircuitBreaker().setFailureThreshold(2);
+        StatClient client = new StatClient(restClient, serverUrl, appName, properties, meterRegistry);
+
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.accept(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.body((ParameterizedTypeReference<Object>) any()))
+                .thenThrow(new IllegalStateException("недоступен"));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(client.getStats("2024-01-01 00:00:00", "2024-01-02 00:00:00", null, false)).isEmpty();
+        }
+
+        verify(restClient, times(2)).get();
+        assertThat(meterRegistry.get("stat.client.failures").tags("exception", "StatServerUnavailableException")
+                .counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("stat.client.circuit.state").gauge().value()).isEqualTo(1);
+    }
+
     private InputHitDto createTestHitDto() {
         InputHitDto hitDto = new InputHitDto();
         hitDto.setApp("ewm-main-service");
@@ -0,0 +1,137 @@
+package teamfive.client;
+
+import dto.StatDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsBatcherTest {
+
+    private static final String START = "2024-01-01 00:00:00";
+    private static final String END = "2024-01-02 00:00:00";
+
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private StatsBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.close();
+    }
+
+    @Test
+    void getViews_WithinLinger_ShouldIssueOneRequestForDistinctUris() throws Exception {
+        batcher = createBatcher(Duration.ofMillis(50), 100, (start, end, uris, unique) -> {
+            requests.add(uris);
+            return List.of(createStatDto("/events/1", 5L), createStatDto("/events/2", 3L));
+        });
+
+        List<CompletableFuture<Long>> views = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            views.add(batcher.getViews(START, END, "/events/" + (i % 3), false));
+        }
+
+        for (int i = 0; i < views.size(); i++) {
+            long expected = switch (i % 3) {
+                case 1 -> 5L;
+                case 2 -> 3L;
+                default -> 0L;
+            };
+            assertThat(views.get(i).get(5, TimeUnit.SECONDS)).isEqualTo(expected);
+        }
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0)).containsExactlyInAnyOrder("/events/0", "/events/1", "/events/2");
+        assertThat(batchSizes).containsExactly(3);
+    }
+
+    @Test
+    void getViews_WhenBatchIsFull_ShouldNotWaitForLinger() throws Exception {
+        batcher = createBatcher(Duration.ofMinutes(1), 2, (start, end, uris, unique) -> {
+            requests.add(uris);
+            return List.of(createStatDto("/events/1", 1L));
+        });
+
+        CompletableFuture<Long> first = batcher.getViews(START, END, "/events/1", false);
+        CompletableFuture<Long> second = batcher.getViews(START, END, "/events/2", false);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1L);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(0L);
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void getViews_WithDifferentStartOrUnique_ShouldUseSeparateBatches() throws Exception {
+        batcher = createBatcher(Duration.ofMillis(50), 100, (start, end, uris, unique) -> {
+            requests.add(uris);
+            return List.of();
+        });
+
+        CompletableFuture.allOf(
+                batcher.getViews(START, END, "/events/1", false),
+                batcher.getViews(START, END, "/events/1", true),
+                batcher.getViews("2024-01-01 12:00:00", END, "/events/1", false)
+        ).get(5, TimeUnit.SECONDS);
+
+        assertThat(requests).hasSize(3);
+    }
+
+    @Test
+    void getViews_WhenRequestFails_ShouldFailAllWaitingFutures() {
+        batcher = createBatcher(Duration.ofMillis(20), 100, (start, end, uris, unique) -> {
+            throw new IllegalStateException("недоступен");
+        });
+
+        CompletableFuture<Long> first = batcher.getViews(START, END, "/events/1", false);
+        CompletableFuture<Long> second = batcher.getViews(START, END, "/events/2", false);
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    void close_ShouldFlushOpenBatchesAndCancelLaterRequests() throws Exception {
+        batcher = createBatcher(Duration.ofMillis(100), 100, (start, end, uris, unique) -> {
+            requests.add(uris);
+            return List.of(createStatDto("/events/1", 5L));
+        });
+        CompletableFuture<Long> pending = batcher.getViews(START, END, "/events/1", false);
+
+        batcher.close();
+
+        assertThat(pending).isCompletedWithValue(5L);
+        assertThat(batcher.getViews(START, END, "/events/2", false))
+                .isCompletedExceptionally()
+                .failsWithin(Duration.ZERO)
+                .withThrowableOfType(CancellationException.class);
+        Thread.sleep(300);
+        assertThat(requests).hasSize(1);
+    }
+
+    private StatsBatcher createBatcher(Duration linger, int maxSize, StatsNearCache.StatsLoader loader) {
+        StatClientProperties.Batch properties = new StatClientProperties.Batch();
+        properties.setEnabled(true);
+        properties.setLinger(linger);
+        properties.setMaxSize(maxSize);
+        return new StatsBatcher(loader, properties, batchSizes::add);
+    }
+
+    private StatDto createStatDto(String uri, Long hits) {
+        StatDto statDto = new StatDto();
+        statDto.setApp("ewm-service");
+        statDto.setUri(uri);
+        statDto.setHits(hits);
+        return statDto;
+    }
+}
@@ -0,0 +1,148 @@
+package teamfive.client;
+
+import dto.StatDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsNearCacheTest {
+
+    private static final String START = "2024-01-01 00:00:00";
+    private static final String END = "2024-01-02 00:00:00";
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void get_WithSameNormalisedKey_ShouldLoadOncePerTtl() {
+        StatsNearCache cache = createCache(false, (start, end, uris, unique) -> load(1L));
+
+        cache.get(START, END, List.of("/events/2", "/events/1"), false);
+        cache.get(START, END, List.of("/events/1", "/events/2", "/events/1"), false);
+        cache.get(START, END, List.of("/events/1", "/events/2"), true);
+
+        assertThat(loads).hasValue(2);
+
+        nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+        cache.get(START, END, List.of("/events/1", "/events/2"), false);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void get_WithEndNearNow_ShouldShareEntryAcrossDifferentEnds() {
+        List<String> ends = new ArrayList<>();
+        StatsNearCache cache = createCache(false, (start, end, uris, unique) -> {
+            ends.add(end);
+            return load(1L);
+        });
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        cache.get(START, LocalDateTime.now().minusSeconds(2).format(formatter), null, false);
+        cache.get(START, LocalDateTime.now().format(formatter), null, false);
+
+        assertThat(loads).hasValue(1);
+        assertThat(ends.get(0)).isGreaterThanOrEqualTo(LocalDateTime.now().minusSeconds(5).format(formatter));
+    }
+
+    @Test
+    void get_FromConcurrentCallers_ShouldShareInFlightLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        StatsNearCache cache = createCache(false, (start, end, uris, unique) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return load(7L);
+        });
+
+        List<CompletableFuture<List<StatDto>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> cache.get(START, END, null, false), executor));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (CompletableFuture<List<StatDto>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).get(0).getHits()).isEqualTo(7L);
+            }
+        }
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_WhenLoadFails_ShouldNotCacheFailure() {
+        StatsNearCache cache = createCache(false, (start, end, uris, unique) -> {
+            if (loads.get() == 0) {
+                loads.incrementAndGet();
+                throw new IllegalStateException("недоступен");
+            }
+            return load(1L);
+        });
+
+        assertThatThrownBy(() -> cache.get(START, END, null, false)).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.get(START, END, null, false)).hasSize(1);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_WithStaleWhileRevalidate_ShouldServeStaleValueAndRefreshInBackground() throws Exception {
+        CountDownLatch refresh = new CountDownLatch(1);
+        StatsNearCache cache = createCache(true, (start, end, uris, unique) -> {
+            if (loads.get() > 0) {
+                try {
+                    refresh.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return load(loads.get() + 1L);
+        });
+
+        assertThat(cache.get(START, END, null, false).get(0).getHits()).isEqualTo(1L);
+
+        nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertThat(cache.get(START, END, null, false).get(0).getHits()).isEqualTo(1L);
+        refresh.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.get(START, END, null, false).get(0).getHits() == 1L && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.get(START, END, null, false).get(0).getHits()).isEqualTo(2L);
+        assertThat(loads).hasValue(2);
+    }
+
+    private StatsNearCache createCache(boolean staleWhileRevalidate, StatsNearCache.StatsLoader loader) {
+        StatClientProperties.Cache properties = new StatClientProperties.Cache();
+        properties.setEnabled(true);
+        properties.setStaleWhileRevalidate(staleWhileRevalidate);
+        return new StatsNearCache(loader, properties, new SimpleMeterRegistry(), nanos::get);
+    }
+
+    private List<StatDto> load(Long hits) {
+        loads.incrementAndGet();
+        StatDto statDto = new StatDto();
+        statDto.setApp("ewm-service");
+        statDto.setUri("/events/1");
+        statDto.setHits(hits);
+        return List.of(statDto);
+    }
+}
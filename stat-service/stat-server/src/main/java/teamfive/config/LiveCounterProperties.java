@@ -0,0 +1,17 @@
+package teamfive.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stat.live")
+public class LiveCounterProperties {
+
+    private boolean enabled = true;
+
+    private Duration horizon = Duration.ofHours(1);
+
+    private Duration maxClockSkew = Duration.ofMinutes(1);
+}
@@ -0,0 +1,7 @@
+package teamfive.config;
+
+public enum OverflowPolicy {
+    BLOCK,
+    REJECT,
+    DROP_OLDEST
+}
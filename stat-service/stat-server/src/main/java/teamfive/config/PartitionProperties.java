@@ -0,0 +1,17 @@
+package teamfive.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Period;
+
+@Data
+@ConfigurationProperties(prefix = "stat.partition")
+public class PartitionProperties {
+
+    private boolean enabled = true;
+
+    private int monthsAhead = 3;
+
+    private Period retention;
+}
@@ -0,0 +1,17 @@
+package teamfive.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stat.top")
+public class TopUriProperties {
+
+    private boolean enabled = true;
+
+    private int capacity = 1_000;
+
+    private Duration maxWindow = Duration.ofHours(24);
+}
@@ -0,0 +1,29 @@
+package teamfive.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stat.write-behind")
+public class WriteBehindProperties {
+
+    private boolean enabled = false;
+
+    private int capacity = 100_000;
+
+    private int batchSize = 1_000;
+
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private Duration blockTimeout = Duration.ofSeconds(1);
+
+    private int maxRetries = 3;
+
+    private Duration retryBackoff = Duration.ofMillis(500);
+
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+}
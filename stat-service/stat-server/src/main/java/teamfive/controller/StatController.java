@@ -1,40 +1,146 @@
 package teamfive.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import dto.InputHitDto;
+import dto.OutBatchHitDto;
 import dto.OutHitDto;
 import dto.StatDto;
+import dto.StatQueryDto;
+import dto.StatSeriesDto;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import teamfive.metrics.StatMetrics;
+import teamfive.model.RollupGranularity;
+import teamfive.model.SeriesRange;
 import teamfive.service.StatService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequiredArgsConstructor
 public class StatController {
 
+    private static final long MAX_SERIES_BUCKETS = 10_000;
+
     private final StatService statService;
+    private final StatMetrics statMetrics;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     public ResponseEntity<OutHitDto> createHit(@RequestBody @Valid InputHitDto inputHitDto) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(statService.createHit(inputHitDto));
+        OutHitDto outHitDto = statMetrics.record(StatMetrics.CONTROLLER_HITS, Tags.of("endpoint", "hit"),
+                () -> statService.createHit(inputHitDto));
+        return ResponseEntity.status(HttpStatus.CREATED).body(outHitDto);
+    }
+
+    @PostMapping("/hit/batch")
+    public ResponseEntity<OutBatchHitDto> createHits(@RequestBody @NotEmpty @Size(max = 10000)
+                                                     List<@Valid InputHitDto> inputHitDtos) {
+        statMetrics.recordBatchSize(inputHitDtos.size());
+        OutBatchHitDto outBatchHitDto = statMetrics.record(StatMetrics.CONTROLLER_HITS,
+                Tags.of("endpoint", "hit_batch"), () -> statService.createHits(inputHitDtos));
+        return ResponseEntity.status(HttpStatus.CREATED).body(outBatchHitDto);
     }
 
     @GetMapping("/stats")
     public ResponseEntity<List<StatDto>> getStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                                   @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                                   @RequestParam(required = false) List<String> uris,
-                                                  @RequestParam(defaultValue = "false") Boolean unique) {
+                                                  @RequestParam(defaultValue = "false") Boolean unique,
+                                                  @RequestParam(defaultValue = "false") Boolean approximate,
+                                                  @RequestParam(required = false) @Positive Integer limit) {
+        validateRange(start, end);
+        Tags tags = StatMetrics.statsTags(start, end, uris, unique);
+        List<StatDto> stats = statMetrics.record(StatMetrics.CONTROLLER_STATS, tags,
+                () -> statService.getStats(start, end, uris, unique, approximate, limit));
+        return ResponseEntity.status(HttpStatus.OK).body(stats);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                             @RequestParam(required = false) List<String> uris,
+                                                             @RequestParam(defaultValue = "false") Boolean unique,
+                                                             @RequestParam(defaultValue = "false") Boolean approximate,
+                                                             @RequestParam(required = false) @Positive Integer limit) {
+        validateRange(start, end);
+        ObjectWriter writer = objectMapper.writerFor(StatDto.class);
+        StreamingResponseBody body = outputStream -> statService.streamStats(start, end, uris, unique, approximate,
+                limit, statDto -> {
+                    try {
+                        outputStream.write(writer.writeValueAsBytes(statDto));
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/stats/series")
+    public ResponseEntity<List<StatSeriesDto>> getSeries(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                         @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                         @RequestParam(required = false) List<String> uris,
+                                                         @RequestParam(defaultValue = "false") Boolean unique,
+                                                         @RequestParam(defaultValue = "false") Boolean approximate,
+                                                         @RequestParam(defaultValue = "hour") @Pattern(regexp = "(?i)hour|day")
+                                                         String granularity) {
+        validateRange(start, end);
+        RollupGranularity bucketGranularity = RollupGranularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        if (SeriesRange.bucketCount(bucketGranularity, start, end) > MAX_SERIES_BUCKETS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Интервал не может содержать больше " + MAX_SERIES_BUCKETS + " корзин");
+        }
+        Tags tags = StatMetrics.statsTags(start, end, uris, unique);
+        List<StatSeriesDto> series = statMetrics.record(StatMetrics.CONTROLLER_SERIES, tags,
+                () -> statService.getSeries(start, end, uris, unique, approximate, bucketGranularity));
+        return ResponseEntity.status(HttpStatus.OK).body(series);
+    }
+
+    @PostMapping("/stats/query")
+    public ResponseEntity<List<List<StatDto>>> queryStats(@RequestBody @NotEmpty @Size(max = 100)
+                                                          List<@Valid StatQueryDto> queries) {
+        queries.forEach(query -> validateRange(query.getStart(), query.getEnd()));
+        List<List<StatDto>> stats = statMetrics.record(StatMetrics.CONTROLLER_QUERY, Tags.empty(),
+                () -> statService.queryStats(queries));
+        return ResponseEntity.status(HttpStatus.OK).body(stats);
+    }
+
+    @GetMapping("/stats/top")
+    public ResponseEntity<List<StatDto>> getTop(@RequestParam String app,
+                                                @RequestParam(defaultValue = "60") @Positive int minutes,
+                                                @RequestParam(defaultValue = "10") @Positive @Max(1000) int limit) {
+        Duration window = Duration.ofMinutes(minutes);
+        if (window.compareTo(statService.getMaxTopWindow()) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Окно не может превышать " + statService.getMaxTopWindow().toMinutes() + " минут");
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(statService.getTop(app, window, limit));
+    }
+
+    private void validateRange(LocalDateTime start, LocalDateTime end) {
         if (end.isBefore(start)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Дата окончания не может быть раньше даты начала!");
         }
-        return ResponseEntity.status(HttpStatus.OK).body(statService.getStats(start, end, uris, unique));
     }
 
 }
@@ -3,10 +3,16 @@ package teamfive.mapper;
 import dto.InputHitDto;
 import dto.OutHitDto;
 import dto.StatDto;
+import dto.StatQueryDto;
+import dto.StatSeriesDto;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import teamfive.model.Hit;
 import teamfive.model.StatHit;
+import teamfive.model.StatQuery;
+import teamfive.model.StatSeriesHit;
+
+import java.util.List;
 
 @Mapper(componentModel = "spring")
 public interface SimpleHitMapper {
@@ -14,7 +20,13 @@ public interface SimpleHitMapper {
     @Mapping(target = "id", ignore = true)
     Hit dtoToHit(InputHitDto inputHitDto);
 
+    List<Hit> dtosToHits(List<InputHitDto> inputHitDtos);
+
     OutHitDto hitToDto(Hit hit);
 
     StatDto statHitToStatDto(StatHit statHit);
+
+    StatSeriesDto seriesHitToDto(StatSeriesHit statSeriesHit);
+
+    List<StatQuery> dtosToQueries(List<StatQueryDto> statQueryDtos);
 }
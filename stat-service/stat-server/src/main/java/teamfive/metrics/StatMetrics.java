@@ -0,0 +1,105 @@
+package teamfive.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Метрики записи хитов и запросов статистики. Запросы статистики тегируются признаком unique,
+ * корзиной количества uri и корзиной ширины интервала, чтобы число временных рядов оставалось ограниченным.
+ */
+@Component
+public class StatMetrics {
+
+    public static final String CONTROLLER_HITS = "stat.controller.hits";
+    public static final String CONTROLLER_STATS = "stat.controller.stats";
+    public static final String CONTROLLER_QUERY = "stat.controller.query";
+    public static final String CONTROLLER_SERIES = "stat.controller.series";
+    public static final String SERVICE_HITS = "stat.service.hits";
+    public static final String SERVICE_STATS = "stat.service.stats";
+    public static final String SERVICE_STATS_LOAD = "stat.service.stats.load";
+    public static final String SERVICE_TOP = "stat.service.top";
+    public static final String SERVICE_QUERY = "stat.service.query";
+    public static final String SERVICE_SERIES = "stat.service.series";
+    public static final String REPOSITORY_QUERIES = "stat.repository.queries";
+    public static final String HITS_BATCH_SIZE = "stat.hits.batch.size";
+    public static final String STATS_RESULT_SIZE = "stat.stats.result.size";
+
+    private final MeterRegistry registry;
+
+    public StatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static Tags statsTags(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        return Tags.of(
+                "unique", String.valueOf(unique),
+                "uris", urisBucket(uris),
+                "range", rangeBucket(Duration.between(start, end)));
+    }
+
+    public <T> T record(String name, Tags tags, Supplier<T> action) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(action);
+    }
+
+    public void record(String name, Tags tags, Runnable action) {
+        Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(action);
+    }
+
+    public void recordBatchSize(int size) {
+        DistributionSummary.builder(HITS_BATCH_SIZE)
+                .baseUnit("hits")
+                .register(registry)
+                .record(size);
+    }
+
+    public void recordResultSize(Tags tags, int size) {
+        DistributionSummary.builder(STATS_RESULT_SIZE)
+                .baseUnit("rows")
+                .tags(tags)
+                .register(registry)
+                .record(size);
+    }
+
+    static String urisBucket(List<String> uris) {
+        if (uris == null) {
+            return "all";
+        }
+        int size = uris.size();
+        if (size <= 1) {
+            return String.valueOf(size);
+        }
+        if (size <= 10) {
+            return "2-10";
+        }
+        return size <= 100 ? "11-100" : "100+";
+    }
+
+    static String rangeBucket(Duration range) {
+        if (range.compareTo(Duration.ofHours(1)) <= 0) {
+            return "1h";
+        }
+        if (range.compareTo(Duration.ofDays(1)) <= 0) {
+            return "1d";
+        }
+        if (range.compareTo(Duration.ofDays(7)) <= 0) {
+            return "7d";
+        }
+        return range.compareTo(Duration.ofDays(31)) <= 0 ? "31d" : "31d+";
+    }
+}
@@ -0,0 +1,20 @@
+package teamfive.model;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+public record BucketKey(RollupGranularity granularity, String app, String uri, LocalDateTime bucketStart) {
+
+    /**
+     * Порядок первичного ключа агрегатов: строки блокируются в нём, чтобы параллельные записи
+     * не блокировали друг друга крест-накрест.
+     */
+    public static final Comparator<BucketKey> ORDER = Comparator.comparing(BucketKey::granularity)
+            .thenComparing(BucketKey::uri)
+            .thenComparing(BucketKey::bucketStart)
+            .thenComparing(BucketKey::app);
+
+    public static BucketKey of(RollupGranularity granularity, Hit hit) {
+        return new BucketKey(granularity, hit.getApp(), hit.getUri(), granularity.floor(hit.getTimestamp()));
+    }
+}
@@ -3,6 +3,9 @@ package teamfive.model;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import teamfive.storage.HitAppConverter;
+import teamfive.storage.HitUriConverter;
+import teamfive.storage.IpAddressConverter;
 
 import java.time.LocalDateTime;
 
@@ -16,12 +19,15 @@ public class Hit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
+    @Convert(converter = HitAppConverter.class)
+    @Column(name = "app_id", nullable = false)
     private String app;
 
-    @Column(nullable = false)
+    @Convert(converter = HitUriConverter.class)
+    @Column(name = "uri_id", nullable = false)
     private String uri;
 
+    @Convert(converter = IpAddressConverter.class)
     @Column(nullable = false)
     private String ip;
 
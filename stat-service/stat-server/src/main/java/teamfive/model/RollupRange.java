@@ -0,0 +1,55 @@
+package teamfive.model;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Разбиение интервала [start, end] на части: сырые хиты по краям,
+ * часовые агрегаты [hourStart, dayStart) и [dayEnd, hourEnd),
+ * суточные агрегаты [dayStart, dayEnd).
+ */
+@Getter
+public class RollupRange {
+
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final LocalDateTime hourStart;
+    private final LocalDateTime hourEnd;
+    private final LocalDateTime dayStart;
+    private final LocalDateTime dayEnd;
+
+    private RollupRange(LocalDateTime start, LocalDateTime end, LocalDateTime hourStart, LocalDateTime hourEnd) {
+        this.start = start;
+        this.end = end;
+        this.hourStart = hourStart;
+        this.hourEnd = hourEnd;
+        LocalDateTime firstDay = RollupGranularity.DAY.ceil(hourStart);
+        LocalDateTime lastDay = RollupGranularity.DAY.floor(hourEnd);
+        if (firstDay.isBefore(lastDay)) {
+            this.dayStart = firstDay;
+            this.dayEnd = lastDay;
+        } else {
+            this.dayStart = hourEnd;
+            this.dayEnd = hourEnd;
+        }
+    }
+
+    public boolean covers(RollupGranularity granularity, LocalDateTime bucketStart) {
+        return switch (granularity) {
+            case DAY -> !bucketStart.isBefore(dayStart) && bucketStart.isBefore(dayEnd);
+            case HOUR -> !bucketStart.isBefore(hourStart) && bucketStart.isBefore(dayStart)
+                    || !bucketStart.isBefore(dayEnd) && bucketStart.isBefore(hourEnd);
+        };
+    }
+
+    public static Optional<RollupRange> of(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime hourStart = RollupGranularity.HOUR.ceil(start);
+        LocalDateTime hourEnd = RollupGranularity.HOUR.floor(end);
+        if (!hourStart.isBefore(hourEnd)) {
+            return Optional.empty();
+        }
+        return Optional.of(new RollupRange(start, end, hourStart, hourEnd));
+    }
+}
@@ -0,0 +1,54 @@
+package teamfive.model;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Разбиение интервала [start, end] для временного ряда: полные корзины [bucketStart, bucketEnd)
+ * берутся из агрегатов, неполные корзины по краям считаются по сырым хитам.
+ */
+@Getter
+public class SeriesRange {
+
+    private final RollupGranularity granularity;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final LocalDateTime bucketStart;
+    private final LocalDateTime bucketEnd;
+
+    private SeriesRange(RollupGranularity granularity, LocalDateTime start, LocalDateTime end,
+                        LocalDateTime bucketStart, LocalDateTime bucketEnd) {
+        this.granularity = granularity;
+        this.start = start;
+        this.end = end;
+        this.bucketStart = bucketStart;
+        this.bucketEnd = bucketEnd;
+    }
+
+    public boolean covers(LocalDateTime bucket) {
+        return !bucket.isBefore(bucketStart) && bucket.isBefore(bucketEnd);
+    }
+
+    public static SeriesRange of(RollupGranularity granularity, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime bucketStart = granularity.ceil(start);
+        LocalDateTime bucketEnd = granularity.floor(end);
+        if (!bucketStart.isBefore(bucketEnd)) {
+            return raw(granularity, start, end);
+        }
+        return new SeriesRange(granularity, start, end, bucketStart, bucketEnd);
+    }
+
+    /**
+     * Весь интервал считается по сырым хитам.
+     */
+    public static SeriesRange raw(RollupGranularity granularity, LocalDateTime start, LocalDateTime end) {
+        return new SeriesRange(granularity, start, end, start, start);
+    }
+
+    public static long bucketCount(RollupGranularity granularity, LocalDateTime start, LocalDateTime end) {
+        Duration width = granularity == RollupGranularity.HOUR ? Duration.ofHours(1) : Duration.ofDays(1);
+        return Duration.between(granularity.floor(start), end).dividedBy(width) + 1;
+    }
+}
@@ -0,0 +1,7 @@
+package teamfive.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record StatQuery(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+}
@@ -0,0 +1,16 @@
+package teamfive.model;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+@Data
+public class StatSeriesHit {
+
+    private final String app;
+    private final String uri;
+    private final LocalDateTime bucket;
+    private final Long hits;
+}
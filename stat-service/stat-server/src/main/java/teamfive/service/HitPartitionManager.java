@@ -0,0 +1,102 @@
+package teamfive.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import teamfive.config.PartitionProperties;
+import teamfive.model.RollupGranularity;
+import teamfive.storage.HitPartitionRepository;
+import teamfive.storage.HitRollupRepository;
+import teamfive.storage.HitSketchRepository;
+import teamfive.storage.HitTopRepository;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Создаёт месячные секции hits наперёд и удаляет устаревшие данные. На Postgres месяц,
+ * целиком вышедший за срок хранения, удаляется через DROP TABLE секции; строки из секции
+ * по умолчанию и из несекционированной таблицы удаляются через DELETE. Вместе с хитами удаляются
+ * агрегаты, скетчи и контрольные точки топа за периоды, целиком закончившиеся до границы удаления:
+ * для секционированной таблицы это начало месяца срока хранения, так как секции удаляются целиком.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HitPartitionManager {
+
+    private static final List<ChronoUnit> TOP_UNITS = List.of(ChronoUnit.MINUTES, ChronoUnit.HOURS);
+
+    private final HitPartitionRepository partitionRepository;
+    private final PartitionProperties properties;
+    private final StatsCache statsCache;
+    private final HitRollupRepository rollupRepository;
+    private final HitSketchRepository sketchRepository;
+    private final HitTopRepository topRepository;
+
+    @PostConstruct
+    public void init() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${stat.partition.cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        ensurePartitions(YearMonth.now());
+        applyRetention(LocalDateTime.now());
+    }
+
+    public void ensurePartitions(YearMonth current) {
+        if (!partitionRepository.isPartitioned()) {
+            return;
+        }
+        for (int i = 0; i <= properties.getMonthsAhead(); i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                partitionRepository.createMonthPartition(month);
+            } catch (DataAccessException e) {
+                log.warn("Не удалось создать секцию хитов за {}: {}", month, e.getMessage());
+            }
+        }
+    }
+
+    public void applyRetention(LocalDateTime now) {
+        if (properties.getRetention() == null) {
+            return;
+        }
+        LocalDateTime cutoff = now.minus(properties.getRetention());
+        int droppedPartitions = 0;
+        if (partitionRepository.isPartitioned()) {
+            for (YearMonth month : partitionRepository.findMonthPartitions()) {
+                if (!month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                    partitionRepository.dropMonthPartition(month);
+                    droppedPartitions++;
+                }
+            }
+        }
+        int deletedHits = partitionRepository.deleteBefore(cutoff);
+        LocalDateTime derivedCutoff = partitionRepository.isPartitioned()
+                ? YearMonth.from(cutoff).atDay(1).atStartOfDay()
+                : cutoff;
+        int deletedAggregates = 0;
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            deletedAggregates += rollupRepository.deleteBefore(granularity, derivedCutoff);
+            deletedAggregates += sketchRepository.deleteBefore(granularity, derivedCutoff);
+        }
+        for (ChronoUnit unit : TOP_UNITS) {
+            deletedAggregates += topRepository.deleteBefore(unit, derivedCutoff.truncatedTo(unit));
+        }
+        if (droppedPartitions > 0 || deletedHits > 0 || deletedAggregates > 0) {
+            log.info("Удалены хиты старше {}: секций = {}, строк = {}, строк агрегатов = {}", cutoff,
+                    droppedPartitions, deletedHits, deletedAggregates);
+            statsCache.invalidateAll();
+        }
+    }
+}
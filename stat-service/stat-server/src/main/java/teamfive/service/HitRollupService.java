@@ -0,0 +1,116 @@
+package teamfive.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import teamfive.model.BucketKey;
+import teamfive.model.Hit;
+import teamfive.model.RollupGranularity;
+import teamfive.model.RollupRange;
+import teamfive.model.SeriesRange;
+import teamfive.model.StatHit;
+import teamfive.model.StatSeriesHit;
+import teamfive.storage.HitRollupRepository;
+import teamfive.storage.HitSeriesRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Почасовые и посуточные агрегаты хитов. Счётчики прибавляются в той же транзакции, что и вставка
+ * хитов, поэтому агрегаты не расходятся с hits ни между запросами, ни после аварийной остановки.
+ * Старт с выключенными агрегатами фиксирует в hit_rollup_watermark последний покрытый хит, а старт
+ * с включёнными досчитывает хиты после него частями по BACKFILL_CHUNK id.
+ */
+@Slf4j
+@Service
+public class HitRollupService {
+
+    private static final long BACKFILL_CHUNK = 100_000;
+
+    private final HitRollupRepository rollupRepository;
+    private final HitSeriesRepository seriesRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    public HitRollupService(HitRollupRepository rollupRepository,
+                            HitSeriesRepository seriesRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${stat.rollup.enabled:true}") boolean enabled) {
+        this.rollupRepository = rollupRepository;
+        this.seriesRepository = seriesRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            rollupRepository.freezeWatermark();
+            return;
+        }
+        Long watermark = rollupRepository.findWatermark();
+        if (watermark == null) {
+            return;
+        }
+        long lastHitId = rollupRepository.findLastHitId();
+        if (watermark < lastHitId) {
+            log.info("Досчёт агрегатов статистики по хитам: id с {} по {}", watermark + 1, lastHitId);
+        }
+        for (long from = watermark; from < lastHitId; from += BACKFILL_CHUNK) {
+            long to = Math.min(from + BACKFILL_CHUNK, lastHitId);
+            long chunkFrom = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                rollupRepository.backfill(chunkFrom, to);
+                rollupRepository.saveWatermark(to);
+            });
+        }
+        rollupRepository.saveWatermark(null);
+    }
+
+    public Optional<RollupRange> findRange(LocalDateTime start, LocalDateTime end) {
+        return enabled ? RollupRange.of(start, end) : Optional.empty();
+    }
+
+    public Optional<SeriesRange> findSeriesRange(RollupGranularity granularity, LocalDateTime start,
+                                                 LocalDateTime end) {
+        return enabled ? Optional.of(SeriesRange.of(granularity, start, end)) : Optional.empty();
+    }
+
+    public List<StatHit> getNonUniqueStat(RollupRange range, List<String> uris) {
+        return getNonUniqueStat(range, uris, null);
+    }
+
+    public List<StatHit> getNonUniqueStat(RollupRange range, List<String> uris, Integer limit) {
+        return rollupRepository.getNonUniqueStat(range, uris, limit);
+    }
+
+    public void streamNonUniqueStat(RollupRange range, List<String> uris, Integer limit, Consumer<StatHit> consumer) {
+        rollupRepository.streamNonUniqueStat(range, uris, limit, consumer);
+    }
+
+    public List<StatSeriesHit> getNonUniqueSeries(SeriesRange range, List<String> uris) {
+        return seriesRepository.getNonUniqueSeries(range, uris);
+    }
+
+    @EventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Map<BucketKey, Long> increments = new HashMap<>();
+        for (Hit hit : event.hits()) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                increments.merge(BucketKey.of(granularity, hit), 1L, Long::sum);
+            }
+        }
+        rollupRepository.merge(increments);
+    }
+}
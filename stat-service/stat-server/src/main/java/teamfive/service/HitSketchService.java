@@ -0,0 +1,274 @@
+package teamfive.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import teamfive.model.BucketKey;
+import teamfive.model.Hit;
+import teamfive.model.RollupGranularity;
+import teamfive.model.RollupRange;
+import teamfive.model.SeriesRange;
+import teamfive.model.StatHit;
+import teamfive.model.StatSeriesHit;
+import teamfive.sketch.HyperLogLog;
+import teamfive.storage.HitSeriesRepository;
+import teamfive.storage.HitSketchRepository;
+import teamfive.storage.IpAddressCodec;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Скетчи уникальных ip по часам и суткам. Скетчи сохранённых хитов копятся в памяти после коммита
+ * и раз в flush-interval-ms объединяются с hit_sketches. На время записи сбрасываемые скетчи остаются
+ * видны запросам; объединение идемпотентно, поэтому скетч, попавший и в память, и в таблицу,
+ * не искажает оценку. Вместе со скетчами сохраняется id хита, до которого они полны; при старте
+ * хиты после него добавляются заново, чтобы восстановить то, что не успело записаться до остановки.
+ * Предполагается, что транзакция записи хитов завершается быстрее одного интервала сброса.
+ */
+@Slf4j
+@Service
+public class HitSketchService {
+
+    private static final long RECONCILE_CHUNK = 10_000;
+
+    private final HitSketchRepository sketchRepository;
+    private final HitSeriesRepository seriesRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Map<BucketKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private final Map<BucketKey, HyperLogLog> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private long lastObservedHitId;
+
+    public HitSketchService(HitSketchRepository sketchRepository,
+                            HitSeriesRepository seriesRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${stat.sketch.enabled:true}") boolean enabled) {
+        this.sketchRepository = sketchRepository;
+        this.seriesRepository = seriesRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            lastObservedHitId = sketchRepository.findLastHitId();
+            if (sketchRepository.isEmpty()) {
+                build();
+            } else {
+                reconcile(sketchRepository.findWatermark());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Optional<RollupRange> findRange(LocalDateTime start, LocalDateTime end) {
+        return enabled ? RollupRange.of(start, end) : Optional.empty();
+    }
+
+    public Optional<SeriesRange> findSeriesRange(RollupGranularity granularity, LocalDateTime start,
+                                                 LocalDateTime end) {
+        return enabled ? Optional.of(SeriesRange.of(granularity, start, end)) : Optional.empty();
+    }
+
+    @Order(StatsCache.SOURCE_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (Hit hit : event.hits()) {
+            String ip = IpAddressCodec.normalize(hit.getIp());
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                pending.compute(BucketKey.of(granularity, hit), (key, sketch) -> {
+                    HyperLogLog result = sketch == null ? new HyperLogLog() : sketch;
+                    result.add(ip);
+                    return result;
+                });
+            }
+        }
+    }
+
+    public List<StatHit> getApproximateUniqueStat(RollupRange range, List<String> uris) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        Map<BucketKey, HyperLogLog> unflushed = unflushed(key -> range.covers(key.granularity(), key.bucketStart())
+                && (uris == null || uris.contains(key.uri())));
+        Map<AppUri, HyperLogLog> sketches = new HashMap<>();
+        sketchRepository.forEachSketch(range, uris, (app, uri, sketch) ->
+                sketches.merge(new AppUri(app, uri), sketch, HitSketchService::union));
+        sketchRepository.forEachEdgeIp(range, uris, (app, uri, ip, timestamp) ->
+                sketches.computeIfAbsent(new AppUri(app, uri), key -> new HyperLogLog()).add(ip));
+        unflushed.forEach((key, sketch) ->
+                sketches.merge(new AppUri(key.app(), key.uri()), sketch, HitSketchService::union));
+        return sketches.entrySet().stream()
+                .map(entry -> new StatHit(entry.getKey().app(), entry.getKey().uri(), entry.getValue().estimate()))
+                .sorted(Comparator.comparing(StatHit::getHits).reversed())
+                .toList();
+    }
+
+    /**
+     * Оценка уникальных ip по корзинам: полные корзины из скетчей, неполные по краям точно по хитам.
+     */
+    public List<StatSeriesHit> getApproximateUniqueSeries(SeriesRange range, List<String> uris) {
+        Map<BucketKey, HyperLogLog> unflushed = unflushed(key -> key.granularity() == range.getGranularity()
+                && range.covers(key.bucketStart()) && (uris == null || uris.contains(key.uri())));
+        Map<SeriesKey, HyperLogLog> sketches = new HashMap<>();
+        seriesRepository.forEachSketch(range, uris, (app, uri, bucketStart, sketch) ->
+                sketches.merge(new SeriesKey(app, uri, bucketStart), sketch, HitSketchService::union));
+        unflushed.forEach((key, sketch) -> sketches.merge(new SeriesKey(key.app(), key.uri(), key.bucketStart()),
+                sketch, HitSketchService::union));
+        List<StatSeriesHit> series = new ArrayList<>(seriesRepository.getUniqueEdgeSeries(range, uris));
+        sketches.forEach((key, sketch) ->
+                series.add(new StatSeriesHit(key.app(), key.uri(), key.bucketStart(), sketch.estimate())));
+        series.sort(Comparator.comparing(StatSeriesHit::getApp)
+                .thenComparing(StatSeriesHit::getUri)
+                .thenComparing(StatSeriesHit::getBucket));
+        return series;
+    }
+
+    @Scheduled(fixedDelayString = "${stat.sketch.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Хиты с id не больше замеченного при прошлом сбросе к этому моменту уже закоммичены и лежат
+     * в pending, поэтому вместе с ними сохраняется именно этот id.
+     */
+    private void flushPending() {
+        long observedHitId = sketchRepository.findLastHitId();
+        if (pending.isEmpty() && observedHitId == lastObservedHitId) {
+            return;
+        }
+        for (BucketKey key : pending.keySet()) {
+            pending.computeIfPresent(key, (k, sketch) -> {
+                inFlight.put(k, sketch);
+                return null;
+            });
+        }
+        long watermark = lastObservedHitId;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                sketchRepository.merge(inFlight);
+                sketchRepository.saveWatermark(watermark);
+            });
+            lastObservedHitId = observedHitId;
+        } catch (RuntimeException e) {
+            log.warn("Ошибка сохранения скетчей: количество = {}. {}", inFlight.size(), e.getMessage());
+            inFlight.forEach((key, sketch) -> pending.merge(key, sketch, HitSketchService::union));
+        } finally {
+            inFlight.clear();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private void build() {
+        Optional<LocalDateTime> firstHit = sketchRepository.findFirstHitTimestamp();
+        if (firstHit.isEmpty()) {
+            return;
+        }
+        log.info("Построение скетчей уникальных посетителей по существующим хитам");
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDateTime day = RollupGranularity.DAY.floor(firstHit.get()); !day.isAfter(now);
+             day = day.plusDays(1)) {
+            Map<BucketKey, HyperLogLog> sketches = new HashMap<>();
+            sketchRepository.forEachHit(day, day.plusDays(1), (app, uri, ip, timestamp) ->
+                    add(sketches, app, uri, ip, timestamp));
+            transactionTemplate.executeWithoutResult(status -> sketchRepository.merge(sketches));
+        }
+        transactionTemplate.executeWithoutResult(status -> sketchRepository.saveWatermark(lastObservedHitId));
+    }
+
+    /**
+     * Повторно добавляет в скетчи хиты после сохранённого id порциями по RECONCILE_CHUNK id.
+     */
+    private void reconcile(long watermark) {
+        if (watermark >= lastObservedHitId) {
+            return;
+        }
+        log.info("Досчёт скетчей уникальных посетителей по хитам: id с {} по {}", watermark + 1, lastObservedHitId);
+        for (long from = watermark; from < lastObservedHitId; from += RECONCILE_CHUNK) {
+            long to = Math.min(from + RECONCILE_CHUNK, lastObservedHitId);
+            Map<BucketKey, HyperLogLog> sketches = new HashMap<>();
+            sketchRepository.forEachHitById(from, to, (app, uri, ip, timestamp) ->
+                    add(sketches, app, uri, ip, timestamp));
+            transactionTemplate.executeWithoutResult(status -> {
+                sketchRepository.merge(sketches);
+                sketchRepository.saveWatermark(to);
+            });
+        }
+    }
+
+    private static void add(Map<BucketKey, HyperLogLog> sketches, String app, String uri, String ip,
+                            LocalDateTime timestamp) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            BucketKey key = new BucketKey(granularity, app, uri, granularity.floor(timestamp));
+            sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(ip);
+        }
+    }
+
+    /**
+     * Копии ещё не записанных скетчей. pending просматривается раньше inFlight, а таблица читается
+     * после обоих: сброс переносит скетчи в том же направлении, поэтому ни один не теряется.
+     */
+    private Map<BucketKey, HyperLogLog> unflushed(Predicate<BucketKey> filter) {
+        Map<BucketKey, HyperLogLog> copies = new HashMap<>();
+        for (Map<BucketKey, HyperLogLog> source : List.of(pending, inFlight)) {
+            for (BucketKey key : source.keySet()) {
+                if (filter.test(key)) {
+                    source.computeIfPresent(key, (k, sketch) -> {
+                        HyperLogLog copy = new HyperLogLog();
+                        copy.merge(sketch);
+                        copies.merge(k, copy, HitSketchService::union);
+                        return sketch;
+                    });
+                }
+            }
+        }
+        return copies;
+    }
+
+    private static HyperLogLog union(HyperLogLog left, HyperLogLog right) {
+        left.merge(right);
+        return left;
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+
+    private record SeriesKey(String app, String uri, LocalDateTime bucketStart) {
+    }
+}
@@ -0,0 +1,324 @@
+package teamfive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import teamfive.config.OverflowPolicy;
+import teamfive.config.WriteBehindProperties;
+import teamfive.model.Hit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Очередь хитов перед записью в БД. Пачка занимает место в очереди целиком: свободные места учитываются
+ * семафором, который производители захватывают на всю пачку, а поток записи освобождает после выборки.
+ * Поэтому отказ по переполнению не оставляет в очереди часть пачки, которую клиент затем пришлёт снова.
+ * Постановка в очередь и остановка разделены блокировкой: после stop() ни один принятый хит
+ * не попадает в очередь, которую уже некому разобрать.
+ */
+@Slf4j
+@Component
+public class HitWriteBehindBuffer implements SmartLifecycle {
+
+    private final HitWriter hitWriter;
+    private final WriteBehindProperties properties;
+    private final BlockingQueue<Hit> queue;
+    private final Counter droppedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+    private final Semaphore freeSlots;
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public HitWriteBehindBuffer(HitWriter hitWriter,
+                                WriteBehindProperties properties,
+                                MeterRegistry meterRegistry) {
+        if (properties.isEnabled() && properties.getBatchSize() >= properties.getCapacity()) {
+            throw new IllegalArgumentException("Размер пачки записи должен быть меньше ёмкости буфера: batchSize = "
+                    + properties.getBatchSize() + ", capacity = " + properties.getCapacity());
+        }
+        this.hitWriter = hitWriter;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        this.freeSlots = new Semaphore(properties.getCapacity(), true);
+        Gauge.builder("stat.hits.buffer.size", queue, BlockingQueue::size)
+                .description("Хиты, ожидающие записи в БД")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("stat.hits.buffer.dropped")
+                .description("Хиты, вытесненные из переполненного буфера")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("stat.hits.buffer.rejected")
+                .description("Хиты, отклонённые из-за переполнения буфера")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("stat.hits.buffer.failed")
+                .description("Хиты, которые не удалось записать в БД")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stat.hits.buffer.flush")
+                .description("Время записи пачки хитов в БД")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public void enqueue(Hit hit) {
+        enqueueAll(List.of(hit));
+    }
+
+    /**
+     * Ставит пачку в очередь или, если буфер остановлен либо пачка больше всей очереди при политике
+     * BLOCK или REJECT, записывает её синхронно.
+     */
+    public void enqueueAll(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        stateLock.readLock().lock();
+        try {
+            if (running && offerAll(hits, properties.getOverflowPolicy())) {
+                return;
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        RuntimeException error = write(new ArrayList<>(hits));
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofVirtual()
+                .name("stat-hit-writer")
+                .start(this::runWriter);
+        log.info("Отложенная запись хитов включена: capacity = {}, batchSize = {}, flushInterval = {}, policy = {}",
+                properties.getCapacity(), properties.getBatchSize(), properties.getFlushInterval(),
+                properties.getOverflowPolicy());
+    }
+
+    @Override
+    public void stop() {
+        stateLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            writer.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Hit> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        freeSlots.release(rest.size());
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+        log.info("Отложенная запись хитов остановлена");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Возвращает false, если пачку нельзя поставить в очередь целиком и её нужно записать синхронно.
+     */
+    private boolean offerAll(List<Hit> hits, OverflowPolicy policy) {
+        int capacity = properties.getCapacity();
+        switch (policy) {
+            case BLOCK -> {
+                if (hits.size() > capacity) {
+                    return false;
+                }
+                boolean acquired;
+                try {
+                    acquired = freeSlots.tryAcquire(hits.size(), properties.getBlockTimeout().toNanos(),
+                            TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    acquired = false;
+                }
+                if (!acquired) {
+                    reject(hits.size());
+                }
+            }
+            case REJECT -> {
+                if (hits.size() > capacity) {
+                    return false;
+                }
+                if (!freeSlots.tryAcquire(hits.size())) {
+                    reject(hits.size());
+                }
+            }
+            case DROP_OLDEST -> {
+                if (hits.size() > capacity) {
+                    droppedCounter.increment(hits.size() - capacity);
+                    hits = hits.subList(hits.size() - capacity, hits.size());
+                }
+                if (!evictOldest(hits.size())) {
+                    return false;
+                }
+            }
+        }
+        queue.addAll(hits);
+        return true;
+    }
+
+    /**
+     * Занимает места под пачку, вытесняя самые старые хиты. Место вытесненного хита переходит
+     * к пачке без возврата в семафор. Если очередь пуста, а места заняты другими производителями,
+     * ждёт освобождения не дольше blockTimeout; по истечении возвращает занятые места и false.
+     */
+    private boolean evictOldest(int count) {
+        long deadline = System.nanoTime() + properties.getBlockTimeout().toNanos();
+        int acquired = 0;
+        while (acquired < count) {
+            if (freeSlots.tryAcquire()) {
+                acquired++;
+                continue;
+            }
+            if (queue.poll() != null) {
+                droppedCounter.increment();
+                acquired++;
+                continue;
+            }
+            boolean freed;
+            try {
+                freed = freeSlots.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                freed = false;
+            }
+            if (!freed) {
+                freeSlots.release(acquired);
+                return false;
+            }
+            acquired++;
+        }
+        return true;
+    }
+
+    private void reject(int count) {
+        rejectedCounter.increment(count);
+        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Буфер записи статистики переполнен");
+    }
+
+    private void runWriter() {
+        while (running || !queue.isEmpty()) {
+            List<Hit> batch = new ArrayList<>(properties.getBatchSize());
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    /**
+     * Места в очереди возвращаются в семафор сразу при выборке, не дожидаясь записи пачки.
+     */
+    private void collectBatch(List<Hit> batch) throws InterruptedException {
+        long interval = properties.getFlushInterval().toNanos();
+        int batchSize = properties.getBatchSize();
+        Hit first = queue.poll(interval, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        freeSlots.release();
+        long deadline = System.nanoTime() + interval;
+        while (batch.size() < batchSize) {
+            freeSlots.release(queue.drainTo(batch, batchSize - batch.size()));
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            Hit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            freeSlots.release();
+        }
+    }
+
+    private void flush(List<Hit> batch) {
+        if (write(batch) != null) {
+            log.error("Пачка хитов потеряна: размер = {}", batch.size());
+        }
+    }
+
+    /**
+     * Записывает пачку с повторами. Возвращает последнюю ошибку, если все попытки не удались.
+     */
+    private RuntimeException write(List<Hit> batch) {
+        int attempts = properties.getMaxRetries() + 1;
+        RuntimeException error = null;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                flushTimer.record(() -> hitWriter.saveAll(batch));
+                return null;
+            } catch (RuntimeException e) {
+                error = e;
+                log.warn("Ошибка записи пачки хитов: размер = {}, попытка = {}. {}",
+                        batch.size(), attempt, e.getMessage());
+            }
+            if (attempt < attempts && !backoff()) {
+                break;
+            }
+        }
+        failedCounter.increment(batch.size());
+        return error;
+    }
+
+    private boolean backoff() {
+        try {
+            Thread.sleep(properties.getRetryBackoff().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package teamfive.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import teamfive.model.Hit;
+import teamfive.storage.HitBatchRepository;
+import teamfive.storage.StatRepository;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class HitWriter {
+
+    private final StatRepository statRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public Hit save(Hit hit) {
+        Hit saved = statRepository.save(hit);
+        eventPublisher.publishEvent(new HitsSavedEvent(List.of(saved)));
+        return saved;
+    }
+
+    @Transactional
+    public int saveAll(List<Hit> hits) {
+        int saved = hitBatchRepository.saveAll(hits);
+        eventPublisher.publishEvent(new HitsSavedEvent(hits));
+        return saved;
+    }
+}
@@ -0,0 +1,8 @@
+package teamfive.service;
+
+import teamfive.model.Hit;
+
+import java.util.List;
+
+public record HitsSavedEvent(List<Hit> hits) {
+}
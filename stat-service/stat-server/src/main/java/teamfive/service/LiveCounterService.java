@@ -0,0 +1,169 @@
+package teamfive.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import teamfive.config.LiveCounterProperties;
+import teamfive.model.Hit;
+import teamfive.model.StatHit;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики хитов в памяти по секундам за последние horizon. Кольцо секундных корзин, в каждой
+ * LongAdder на пару (app, uri), поэтому запись хита не берёт блокировок. Корзина, ушедшая за горизонт,
+ * занимается следующей секундой: её хиты уже в базе и доступны через агрегаты.
+ * Неуникальная статистика за интервал, начинающийся внутри горизонта и после старта сервиса,
+ * считается без обращения к базе с точностью до секунды. Учитываются только хиты этого экземпляра.
+ * Секунды хитов из будущего дальше maxClockSkew запоминаются, и интервал с ними считается по базе.
+ * Запоминаются только секунды не дальше now + maxClockSkew + horizon, иначе набор рос бы без предела:
+ * API отклоняет хиты из будущего, и более дальние метки приходят только в обход его проверки.
+ */
+@Service
+public class LiveCounterService {
+
+    private static final long SLACK_SECONDS = 60;
+
+    private final boolean enabled;
+    private final long horizonSeconds;
+    private final long skewSeconds;
+    private final Clock clock;
+    private final long coveredFrom;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final NavigableSet<Long> rejectedSeconds = new ConcurrentSkipListSet<>();
+
+    @Autowired
+    public LiveCounterService(LiveCounterProperties properties) {
+        this(properties, Clock.systemDefaultZone());
+    }
+
+    LiveCounterService(LiveCounterProperties properties, Clock clock) {
+        this.enabled = properties.isEnabled();
+        this.horizonSeconds = properties.getHorizon().toSeconds();
+        this.skewSeconds = properties.getMaxClockSkew().toSeconds();
+        this.clock = clock;
+        // хиты, сохранённые до старта, могут иметь метки времени до now + skew
+        this.coveredFrom = nowSecond() + skewSeconds + 1;
+        this.buckets = new AtomicReferenceArray<>((int) (horizonSeconds + skewSeconds + SLACK_SECONDS));
+    }
+
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        if (!enabled) {
+            return false;
+        }
+        long from = toSecond(start);
+        long to = Math.max(from, toSecond(end));
+        return from >= coveredFrom && from > nowSecond() - horizonSeconds
+                && rejectedSeconds.subSet(from, true, to, true).isEmpty();
+    }
+
+    @Order(StatsCache.SOURCE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long now = nowSecond();
+        for (Hit hit : event.hits()) {
+            long second = toSecond(hit.getTimestamp());
+            if (second > now + skewSeconds) {
+                if (second <= now + skewSeconds + horizonSeconds) {
+                    rejectedSeconds.add(second);
+                }
+            } else if (second > now - horizonSeconds) {
+                Bucket bucket = bucket(second);
+                if (bucket != null) {
+                    bucket.counters.computeIfAbsent(new AppUri(hit.getApp(), hit.getUri()), key -> new LongAdder())
+                            .increment();
+                }
+            }
+        }
+        if (!rejectedSeconds.isEmpty()) {
+            rejectedSeconds.headSet(now - horizonSeconds, true).clear();
+        }
+    }
+
+    public List<StatHit> getNonUniqueStat(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        Set<String> uriFilter = uris == null ? null : new HashSet<>(uris);
+        long now = nowSecond();
+        long from = Math.max(toSecond(start), now - horizonSeconds + 1);
+        long to = Math.min(toSecond(end), now + skewSeconds);
+        Map<AppUri, Long> totals = new HashMap<>();
+        for (long second = from; second <= to; second++) {
+            Bucket bucket = buckets.get(index(second));
+            if (bucket == null || bucket.second != second) {
+                continue;
+            }
+            bucket.counters.forEach((key, counter) -> {
+                if (uriFilter == null || uriFilter.contains(key.uri())) {
+                    totals.merge(key, counter.sum(), Long::sum);
+                }
+            });
+        }
+        return totals.entrySet().stream()
+                .map(entry -> new StatHit(entry.getKey().app(), entry.getKey().uri(), entry.getValue()))
+                .sorted(Comparator.comparing(StatHit::getHits).reversed())
+                .limit(limit == null ? Long.MAX_VALUE : limit)
+                .toList();
+    }
+
+    int rejectedSecondsCount() {
+        return rejectedSeconds.size();
+    }
+
+    private Bucket bucket(long second) {
+        int index = index(second);
+        while (true) {
+            Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.second >= second) {
+                return bucket.second == second ? bucket : null;
+            }
+            Bucket fresh = new Bucket(second);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private int index(long second) {
+        return (int) Math.floorMod(second, buckets.length());
+    }
+
+    private long nowSecond() {
+        return toSecond(LocalDateTime.now(clock));
+    }
+
+    private static long toSecond(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+
+    private static final class Bucket {
+
+        private final long second;
+        private final Map<AppUri, LongAdder> counters = new ConcurrentHashMap<>();
+
+        private Bucket(long second) {
+            this.second = second;
+        }
+    }
+}
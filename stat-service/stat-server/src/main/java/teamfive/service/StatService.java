@@ -1,18 +1,73 @@
 package teamfive.service;
 
 import dto.InputHitDto;
+import dto.OutBatchHitDto;
 import dto.OutHitDto;
 import dto.StatDto;
+import dto.StatQueryDto;
+import dto.StatSeriesDto;
+import teamfive.model.RollupGranularity;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatService {
 
+    default List<StatDto> getStats(LocalDateTime start,
+                                   LocalDateTime end,
+                                   List<String> uris,
+                                   Boolean unique) {
+        return getStats(start, end, uris, unique, false);
+    }
+
+    default List<StatDto> getStats(LocalDateTime start,
+                                   LocalDateTime end,
+                                   List<String> uris,
+                                   Boolean unique,
+                                   Boolean approximate) {
+        return getStats(start, end, uris, unique, approximate, null);
+    }
+
     List<StatDto> getStats(LocalDateTime start,
                            LocalDateTime end,
                            List<String> uris,
-                           Boolean unique);
+                           Boolean unique,
+                           Boolean approximate,
+                           Integer limit);
+
+    /**
+     * Передаёт строки статистики потребителю по мере чтения из базы, не собирая их в список.
+     */
+    void streamStats(LocalDateTime start,
+                     LocalDateTime end,
+                     List<String> uris,
+                     Boolean unique,
+                     Boolean approximate,
+                     Integer limit,
+                     Consumer<StatDto> consumer);
+
+    /**
+     * Число хитов по корзинам ширины granularity, упорядоченное по app, uri и началу корзины.
+     */
+    List<StatSeriesDto> getSeries(LocalDateTime start,
+                                  LocalDateTime end,
+                                  List<String> uris,
+                                  Boolean unique,
+                                  Boolean approximate,
+                                  RollupGranularity granularity);
+
+    /**
+     * Статистика по нескольким интервалам за один проход по хитам. Результаты идут в порядке запросов.
+     */
+    List<List<StatDto>> queryStats(List<StatQueryDto> queries);
+
+    List<StatDto> getTop(String app, Duration window, int limit);
+
+    Duration getMaxTopWindow();
 
     OutHitDto createHit(InputHitDto inputHitDto);
+
+    OutBatchHitDto createHits(List<InputHitDto> inputHitDtos);
 }
@@ -1,51 +1,249 @@
 package teamfive.service;
 
 import dto.InputHitDto;
+import dto.OutBatchHitDto;
 import dto.OutHitDto;
 import dto.StatDto;
+import dto.StatQueryDto;
+import dto.StatSeriesDto;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import teamfive.mapper.SimpleHitMapper;
+import teamfive.metrics.StatMetrics;
 import teamfive.model.Hit;
+import teamfive.model.RollupGranularity;
+import teamfive.model.RollupRange;
+import teamfive.model.SeriesRange;
 import teamfive.model.StatHit;
+import teamfive.model.StatSeriesHit;
+import teamfive.storage.HitDictionary;
+import teamfive.storage.HitSeriesRepository;
+import teamfive.storage.StatQueryRepository;
 import teamfive.storage.StatRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class StatServiceImpl implements StatService {
 
     private final StatRepository statRepository;
+    private final StatQueryRepository statQueryRepository;
+    private final HitSeriesRepository seriesRepository;
+    private final HitWriter hitWriter;
+    private final HitWriteBehindBuffer hitBuffer;
+    private final LiveCounterService liveCounterService;
+    private final HitRollupService rollupService;
+    private final HitSketchService sketchService;
+    private final TopUriService topUriService;
+    private final StatsCache statsCache;
     private final SimpleHitMapper mapper;
+    private final StatMetrics statMetrics;
+    private final HitDictionary hitDictionary;
 
     @Override
-    public List<StatDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
-        log.info("Запрос статистики: start={}, end={}, uris={}, unique={}",
-                start, end, uris, unique);
+    public List<StatDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                  Boolean approximate, Integer limit) {
+        log.info("Запрос статистики: start={}, end={}, uris={}, unique={}, approximate={}, limit={}",
+                start, end, uris, unique, approximate, limit);
+        Tags tags = StatMetrics.statsTags(start, end, uris, unique);
+        return statMetrics.record(StatMetrics.SERVICE_STATS, tags, () -> statsCache.get(start, end, uris, unique,
+                approximate, limit, () -> loadStats(start, end, uris, unique, approximate, limit, tags)));
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                            Boolean approximate, Integer limit, Consumer<StatDto> consumer) {
+        log.info("Потоковый запрос статистики: start={}, end={}, uris={}, unique={}, approximate={}, limit={}",
+                start, end, uris, unique, approximate, limit);
+        Tags tags = StatMetrics.statsTags(start, end, uris, unique);
+        AtomicInteger rows = new AtomicInteger();
+        Consumer<StatHit> rowConsumer = statHit -> {
+            rows.incrementAndGet();
+            consumer.accept(mapper.statHitToStatDto(statHit));
+        };
+        if (unique) {
+            Optional<RollupRange> sketchRange = approximate ? sketchService.findRange(start, end) : Optional.empty();
+            if (sketchRange.isPresent()) {
+                statMetrics.record(StatMetrics.SERVICE_STATS_LOAD, tags.and("source", "sketch"), () ->
+                        limit(sketchService.getApproximateUniqueStat(sketchRange.get(), uris), limit)
+                                .forEach(rowConsumer));
+            } else {
+                statMetrics.record(StatMetrics.REPOSITORY_QUERIES, tags.and("query", "streamUniqueStat"), () -> {
+                    List<String> knownUris = knownUris(uris);
+                    if (knownUris != null && knownUris.isEmpty()) {
+                        return;
+                    }
+                    try (Stream<StatHit> stream = statRepository.streamUniqueStat(start, end, knownUris,
+                            toLimit(limit))) {
+                        stream.forEach(rowConsumer);
+                    }
+                });
+            }
+        } else if (liveCounterService.covers(start, end)) {
+            statMetrics.record(StatMetrics.SERVICE_STATS_LOAD, tags.and("source", "live"), () ->
+                    liveCounterService.getNonUniqueStat(start, end, uris, limit).forEach(rowConsumer));
+        } else {
+            Optional<RollupRange> rollupRange = rollupService.findRange(start, end);
+            if (rollupRange.isPresent()) {
+                statMetrics.record(StatMetrics.SERVICE_STATS_LOAD, tags.and("source", "rollup"), () ->
+                        rollupService.streamNonUniqueStat(rollupRange.get(), uris, limit, rowConsumer));
+            } else {
+                statMetrics.record(StatMetrics.REPOSITORY_QUERIES, tags.and("query", "streamNonUniqueStat"), () -> {
+                    List<String> knownUris = knownUris(uris);
+                    if (knownUris != null && knownUris.isEmpty()) {
+                        return;
+                    }
+                    try (Stream<StatHit> stream = statRepository.streamNonUniqueStat(start, end, knownUris,
+                            toLimit(limit))) {
+                        stream.forEach(rowConsumer);
+                    }
+                });
+            }
+        }
+        statMetrics.recordResultSize(tags, rows.get());
+    }
+
+    private List<StatDto> loadStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                    Boolean approximate, Integer limit, Tags tags) {
         List<StatHit> statHitList;
         if (unique) {
-            statHitList = statRepository.getUniqueStat(start, end, uris);
+            Optional<RollupRange> sketchRange = approximate ? sketchService.findRange(start, end) : Optional.empty();
+            statHitList = sketchRange.isPresent()
+                    ? statMetrics.record(StatMetrics.SERVICE_STATS_LOAD, tags.and("source", "sketch"),
+                            () -> limit(sketchService.getApproximateUniqueStat(sketchRange.get(), uris), limit))
+                    : statMetrics.record(StatMetrics.REPOSITORY_QUERIES, tags.and("query", "getUniqueStat"),
+                            () -> withKnownUris(uris, known ->
+                                    statRepository.getUniqueStat(start, end, known, toLimit(limit))));
+        } else if (liveCounterService.covers(start, end)) {
+            statHitList = statMetrics.record(StatMetrics.SERVICE_STATS_LOAD, tags.and("source", "live"),
+                    () -> liveCounterService.getNonUniqueStat(start, end, uris, limit));
         } else {
-            statHitList = statRepository.getNonUniqueStat(start, end, uris);
+            Optional<RollupRange> rollupRange = rollupService.findRange(start, end);
+            statHitList = rollupRange.isPresent()
+                    ? statMetrics.record(StatMetrics.SERVICE_STATS_LOAD, tags.and("source", "rollup"),
+                            () -> rollupService.getNonUniqueStat(rollupRange.get(), uris, limit))
+                    : statMetrics.record(StatMetrics.REPOSITORY_QUERIES, tags.and("query", "getNonUniqueStat"),
+                            () -> withKnownUris(uris, known ->
+                                    statRepository.getNonUniqueStat(start, end, known, toLimit(limit))));
         }
+        statMetrics.recordResultSize(tags, statHitList.size());
         return statHitList.stream().map(mapper::statHitToStatDto)
                 .collect(Collectors.toList());
     }
 
-    @Transactional
+    @Override
+    public List<StatSeriesDto> getSeries(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                         Boolean approximate, RollupGranularity granularity) {
+        log.info("Запрос временного ряда: start={}, end={}, uris={}, unique={}, approximate={}, granularity={}",
+                start, end, uris, unique, approximate, granularity);
+        Tags tags = StatMetrics.statsTags(start, end, uris, unique);
+        List<StatSeriesHit> series;
+        if (unique) {
+            Optional<SeriesRange> sketchRange = approximate
+                    ? sketchService.findSeriesRange(granularity, start, end)
+                    : Optional.empty();
+            series = sketchRange.isPresent()
+                    ? statMetrics.record(StatMetrics.SERVICE_SERIES, tags.and("source", "sketch"),
+                            () -> sketchService.getApproximateUniqueSeries(sketchRange.get(), uris))
+                    : statMetrics.record(StatMetrics.SERVICE_SERIES, tags.and("source", "hits"),
+                            () -> seriesRepository.getUniqueEdgeSeries(SeriesRange.raw(granularity, start, end), uris));
+        } else {
+            Optional<SeriesRange> rollupRange = rollupService.findSeriesRange(granularity, start, end);
+            SeriesRange range = rollupRange.orElseGet(() -> SeriesRange.raw(granularity, start, end));
+            series = statMetrics.record(StatMetrics.SERVICE_SERIES,
+                    tags.and("source", rollupRange.isPresent() ? "rollup" : "hits"),
+                    () -> rollupService.getNonUniqueSeries(range, uris));
+        }
+        statMetrics.recordResultSize(tags, series.size());
+        return series.stream().map(mapper::seriesHitToDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<List<StatDto>> queryStats(List<StatQueryDto> queries) {
+        log.info("Пакетный запрос статистики: количество интервалов = {}", queries.size());
+        List<List<StatHit>> results = statMetrics.record(StatMetrics.SERVICE_QUERY, Tags.empty(),
+                () -> statQueryRepository.getStats(mapper.dtosToQueries(queries)));
+        return results.stream()
+                .map(statHits -> statHits.stream().map(mapper::statHitToStatDto).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<StatDto> getTop(String app, Duration window, int limit) {
+        return statMetrics.record(StatMetrics.SERVICE_TOP, Tags.empty(), () -> topUriService.getTop(app, window, limit))
+                .stream()
+                .map(mapper::statHitToStatDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Duration getMaxTopWindow() {
+        return topUriService.getMaxWindow();
+    }
+
+    private static Limit toLimit(Integer limit) {
+        return limit == null ? Limit.unlimited() : Limit.of(limit);
+    }
+
+    private static List<StatHit> limit(List<StatHit> statHits, Integer limit) {
+        return limit == null || statHits.size() <= limit ? statHits : statHits.subList(0, limit);
+    }
+
+    /**
+     * Оставляет только uri из словаря: JPQL-запросы к hits передают uri через конвертер,
+     * который вставил бы неизвестный uri в hit_uris даже при чтении.
+     */
+    private List<String> knownUris(List<String> uris) {
+        return uris == null ? null : hitDictionary.knownUris(uris);
+    }
+
+    private List<StatHit> withKnownUris(List<String> uris, Function<List<String>, List<StatHit>> query) {
+        List<String> knownUris = knownUris(uris);
+        return knownUris != null && knownUris.isEmpty() ? List.of() : query.apply(knownUris);
+    }
+
     @Override
     public OutHitDto createHit(InputHitDto inputHitDto) {
         Hit hit = mapper.dtoToHit(inputHitDto);
         log.info("Запись статистики: app = {}, uri = {}, ip = {}, timestamp = {}",
                 inputHitDto.getApp(), inputHitDto.getUri(), inputHitDto.getIp(), inputHitDto.getTimestamp());
-        return mapper.hitToDto(statRepository.save(hit));
+        Tags tags = Tags.of("mode", "single", "write_behind", String.valueOf(hitBuffer.isEnabled()));
+        return statMetrics.record(StatMetrics.SERVICE_HITS, tags, () -> {
+            if (hitBuffer.isEnabled()) {
+                hitBuffer.enqueue(hit);
+                return mapper.hitToDto(hit);
+            }
+            return mapper.hitToDto(hitWriter.save(hit));
+        });
+    }
+
+    @Override
+    public OutBatchHitDto createHits(List<InputHitDto> inputHitDtos) {
+        List<Hit> hits = mapper.dtosToHits(inputHitDtos);
+        log.info("Пакетная запись статистики: количество = {}", hits.size());
+        Tags tags = Tags.of("mode", "batch", "write_behind", String.valueOf(hitBuffer.isEnabled()));
+        return statMetrics.record(StatMetrics.SERVICE_HITS, tags, () -> {
+            if (hitBuffer.isEnabled()) {
+                hitBuffer.enqueueAll(hits);
+                return new OutBatchHitDto(hits.size());
+            }
+            return new OutBatchHitDto(hitWriter.saveAll(hits));
+        });
     }
 }
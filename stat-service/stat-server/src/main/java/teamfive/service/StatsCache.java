@@ -0,0 +1,235 @@
+package teamfive.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import dto.StatDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import teamfive.config.StatsCacheProperties;
+import teamfive.model.Hit;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов GET /stats. Интервалы, закончившиеся в прошлом, хранятся до вытеснения по размеру,
+ * интервалы, захватывающие текущий момент, живут не дольше liveTtl. Сохранённые хиты
+ * сбрасывают записи, в интервал и список uri которых они попадают.
+ */
+@Component
+public class StatsCache {
+
+    /**
+     * Порядок обработчиков HitsSavedEvent, которые обновляют данные в памяти, читаемые через кэш. Они
+     * выполняются раньше сброса записей кэша, иначе загрузка между сбросом и обновлением закэшировала бы
+     * ответ без этих хитов.
+     */
+    public static final int SOURCE_ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    private final boolean enabled;
+    private final Cache<Key, List<StatDto>> cache;
+    private final Map<String, Set<Key>> keysByUri = new ConcurrentHashMap<>();
+    private final Set<Key> keysForAllUris = ConcurrentHashMap.newKeySet();
+    private final Set<Load> loads = ConcurrentHashMap.newKeySet();
+
+    public StatsCache(StatsCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        long liveTtlNanos = properties.getLiveTtl().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<Key, List<StatDto>>() {
+                    @Override
+                    public long expireAfterCreate(Key key, List<StatDto> value, long currentTime) {
+                        return key.end().isBefore(LocalDateTime.now()) ? Long.MAX_VALUE : liveTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, List<StatDto> value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, List<StatDto> value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .evictionListener((Key key, List<StatDto> value, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "stats");
+    }
+
+    public List<StatDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                             boolean approximate, Supplier<List<StatDto>> loader) {
+        return get(start, end, uris, unique, approximate, null, loader);
+    }
+
+    public List<StatDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                             boolean approximate, Integer limit, Supplier<List<StatDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(start, end, uris == null ? null : uris.stream().distinct().sorted().toList(), unique,
+                approximate, limit);
+        List<StatDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        Load load = new Load(key);
+        loads.add(load);
+        try {
+            List<StatDto> result = List.copyOf(loader.get());
+            cache.asMap().compute(key, (k, old) -> {
+                index(k);
+                if (load.stale) {
+                    unindex(k);
+                    return null;
+                }
+                return result;
+            });
+            return result;
+        } finally {
+            loads.remove(load);
+        }
+    }
+
+    /**
+     * Пачка сводится к интервалу времени хитов по каждому uri, поэтому каждая запись проверяется
+     * не больше одного раза на uri и сбрасывается один раз. Запись, интервал которой пересекается с интервалом
+     * хитов, но не содержит ни одного из них, тоже сбрасывается.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!enabled || event.hits().isEmpty()) {
+            return;
+        }
+        Map<String, Span> spans = new HashMap<>();
+        for (Hit hit : event.hits()) {
+            spans.merge(hit.getUri(), new Span(hit.getTimestamp(), hit.getTimestamp()), Span::union);
+        }
+        Span all = spans.values().stream().reduce(Span::union).orElseThrow();
+        for (Load load : loads) {
+            if (load.key.overlaps(spans, all)) {
+                load.stale = true;
+            }
+        }
+        Set<Key> affected = new HashSet<>();
+        for (Key key : keysForAllUris) {
+            if (key.overlaps(all)) {
+                affected.add(key);
+            }
+        }
+        spans.forEach((uri, span) -> {
+            Set<Key> keys = keysByUri.get(uri);
+            if (keys != null) {
+                for (Key key : keys) {
+                    if (key.overlaps(span)) {
+                        affected.add(key);
+                    }
+                }
+            }
+        });
+        for (Key key : affected) {
+            invalidate(key);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Load load : loads) {
+            load.stale = true;
+        }
+        for (Key key : cache.asMap().keySet()) {
+            invalidate(key);
+        }
+    }
+
+    private void invalidate(Key key) {
+        cache.asMap().computeIfPresent(key, (k, value) -> {
+            unindex(k);
+            return null;
+        });
+    }
+
+    private void index(Key key) {
+        if (key.uris() == null) {
+            keysForAllUris.add(key);
+            return;
+        }
+        for (String uri : key.uris()) {
+            keysByUri.compute(uri, (u, keys) -> {
+                Set<Key> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                result.add(key);
+                return result;
+            });
+        }
+    }
+
+    private void unindex(Key key) {
+        if (key.uris() == null) {
+            keysForAllUris.remove(key);
+            return;
+        }
+        for (String uri : key.uris()) {
+            keysByUri.computeIfPresent(uri, (u, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private record Key(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                       boolean approximate, Integer limit) {
+
+        boolean overlaps(Span span) {
+            return !span.to().isBefore(start) && !span.from().isAfter(end);
+        }
+
+        boolean overlaps(Map<String, Span> spans, Span all) {
+            if (uris == null) {
+                return overlaps(all);
+            }
+            for (String uri : uris) {
+                Span span = spans.get(uri);
+                if (span != null && overlaps(span)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Интервал времени хитов пачки [from, to].
+     */
+    private record Span(LocalDateTime from, LocalDateTime to) {
+
+        Span union(Span other) {
+            return new Span(from.isBefore(other.from) ? from : other.from, to.isAfter(other.to) ? to : other.to);
+        }
+    }
+
+    private static final class Load {
+
+        private final Key key;
+        private volatile boolean stale;
+
+        private Load(Key key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package teamfive.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import teamfive.config.TopUriProperties;
+import teamfive.model.Hit;
+import teamfive.model.StatHit;
+import teamfive.sketch.SpaceSaving;
+import teamfive.storage.HitTopRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Самые посещаемые uri приложения за последние минуты или часы. Для каждого приложения хранятся
+ * сводки Space-Saving по минутам за последний час и по часам за maxWindow. Запрос суммирует сводки
+ * нужных корзин, поэтому его стоимость ограничена ёмкостью сводок и не зависит от объёма хитов.
+ * Изменённые корзины периодически сохраняются в hit_top_checkpoints и загружаются при старте.
+ */
+@Slf4j
+@Service
+public class TopUriService {
+
+    private static final Duration MINUTE_WINDOW = Duration.ofHours(1);
+    private static final List<ChronoUnit> UNITS = List.of(ChronoUnit.MINUTES, ChronoUnit.HOURS);
+    private static final int STRIPES = 8;
+
+    private final HitTopRepository topRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TopUriProperties properties;
+    private final Map<String, AppWindows> apps = new ConcurrentHashMap<>();
+
+    public TopUriService(HitTopRepository topRepository, TransactionTemplate transactionTemplate,
+                         TopUriProperties properties) {
+        this.topRepository = topRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (ChronoUnit unit : UNITS) {
+            topRepository.forEach(unit, oldestBucket(unit, now), (app, bucketStart, summary) ->
+                    windows(app).restore(unit, bucketStart, summary));
+        }
+    }
+
+    public Duration getMaxWindow() {
+        return properties.getMaxWindow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHitsSaved(HitsSavedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldestMinute = oldestBucket(ChronoUnit.MINUTES, now);
+        LocalDateTime oldestHour = oldestBucket(ChronoUnit.HOURS, now);
+        Map<BucketRef, Map<String, Long>> counts = new HashMap<>();
+        for (Hit hit : event.hits()) {
+            LocalDateTime timestamp = hit.getTimestamp();
+            if (timestamp.isBefore(oldestHour)) {
+                continue;
+            }
+            List<ChronoUnit> units = timestamp.isBefore(oldestMinute) ? List.of(ChronoUnit.HOURS) : UNITS;
+            for (ChronoUnit unit : units) {
+                counts.computeIfAbsent(BucketRef.of(hit.getApp(), unit, timestamp), key -> new HashMap<>())
+                        .merge(hit.getUri(), 1L, Long::sum);
+            }
+        }
+        counts.forEach((ref, uris) -> windows(ref.app()).bucket(ref.unit(), ref.bucketStart()).add(uris));
+    }
+
+    /**
+     * Окно собирается из целых корзин: минутных для окна до часа и часовых для большего. Начало окна
+     * округляется до ближайшей границы корзины, поэтому фактическое окно отличается от запрошенного
+     * не больше чем на половину корзины: на 30 секунд для минутных и на 30 минут для часовых.
+     */
+    public List<StatHit> getTop(String app, Duration window, int limit) {
+        AppWindows appWindows = apps.get(app);
+        if (appWindows == null) {
+            return List.of();
+        }
+        ChronoUnit unit = window.compareTo(MINUTE_WINDOW) <= 0 ? ChronoUnit.MINUTES : ChronoUnit.HOURS;
+        Map<String, Long> totals = appWindows.sum(unit, roundToBucket(LocalDateTime.now().minus(window), unit));
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> new StatHit(app, entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${stat.top.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Snapshot> snapshots = new ArrayList<>();
+        apps.forEach((app, appWindows) -> appWindows.drain(app, now, snapshots));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Snapshot snapshot : snapshots) {
+                    topRepository.save(snapshot.unit(), snapshot.app(), snapshot.bucketStart(), snapshot.summary());
+                }
+                for (ChronoUnit unit : UNITS) {
+                    topRepository.deleteBefore(unit, oldestBucket(unit, now));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Ошибка сохранения сводок популярных uri: количество = {}. {}", snapshots.size(),
+                    e.getMessage());
+            snapshots.forEach(snapshot -> windows(snapshot.app()).markDirty(snapshot.unit(), snapshot.bucketStart()));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        checkpoint();
+    }
+
+    private AppWindows windows(String app) {
+        return apps.computeIfAbsent(app, key -> new AppWindows());
+    }
+
+    private LocalDateTime oldestBucket(ChronoUnit unit, LocalDateTime now) {
+        Duration retention = unit == ChronoUnit.MINUTES ? MINUTE_WINDOW : properties.getMaxWindow();
+        return now.minus(retention).truncatedTo(unit);
+    }
+
+    private static LocalDateTime roundToBucket(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        Duration half = unit.getDuration().dividedBy(2);
+        return Duration.between(floor, time).compareTo(half) < 0 ? floor : floor.plus(1, unit);
+    }
+
+    private record Snapshot(ChronoUnit unit, String app, LocalDateTime bucketStart, byte[] summary) {
+    }
+
+    private record BucketRef(String app, ChronoUnit unit, LocalDateTime bucketStart) {
+
+        static BucketRef of(String app, ChronoUnit unit, LocalDateTime timestamp) {
+            return new BucketRef(app, unit, timestamp.truncatedTo(unit));
+        }
+    }
+
+    private final class AppWindows {
+
+        private final Map<ChronoUnit, ConcurrentNavigableMap<LocalDateTime, Bucket>> buckets =
+                new EnumMap<>(ChronoUnit.class);
+
+        private AppWindows() {
+            for (ChronoUnit unit : UNITS) {
+                buckets.put(unit, new ConcurrentSkipListMap<>());
+            }
+        }
+
+        Bucket bucket(ChronoUnit unit, LocalDateTime bucketStart) {
+            return buckets.get(unit).computeIfAbsent(bucketStart, key -> new Bucket());
+        }
+
+        void restore(ChronoUnit unit, LocalDateTime bucketStart, SpaceSaving summary) {
+            bucket(unit, bucketStart).restore(summary);
+        }
+
+        void markDirty(ChronoUnit unit, LocalDateTime bucketStart) {
+            Bucket bucket = buckets.get(unit).get(bucketStart);
+            if (bucket != null) {
+                bucket.dirty.set(true);
+            }
+        }
+
+        Map<String, Long> sum(ChronoUnit unit, LocalDateTime from) {
+            Map<String, Long> totals = new HashMap<>();
+            for (Bucket bucket : buckets.get(unit).tailMap(from, true).values()) {
+                bucket.addTo(totals);
+            }
+            return totals;
+        }
+
+        void drain(String app, LocalDateTime now, List<Snapshot> snapshots) {
+            for (ChronoUnit unit : UNITS) {
+                ConcurrentNavigableMap<LocalDateTime, Bucket> unitBuckets = buckets.get(unit);
+                unitBuckets.headMap(oldestBucket(unit, now)).clear();
+                unitBuckets.forEach((bucketStart, bucket) -> {
+                    if (bucket.dirty.getAndSet(false)) {
+                        snapshots.add(new Snapshot(unit, app, bucketStart, bucket.snapshot().toBytes()));
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Корзина разбита на полосы по хэшу uri, у каждой полосы своя сводка и своя блокировка, поэтому
+     * параллельные записи в текущую корзину почти не ждут друг друга. Полосы содержат разные uri,
+     * и их сводки объединяются без потерь. Запись хитов и запросы блокируют по одной полосе за раз.
+     */
+    private final class Bucket {
+
+        private final Stripe[] stripes = new Stripe[STRIPES];
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private Bucket() {
+            int stripeCapacity = Math.ceilDiv(properties.getCapacity(), STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe(new SpaceSaving(stripeCapacity));
+            }
+        }
+
+        void add(Map<String, Long> counts) {
+            counts.forEach((uri, count) -> stripe(uri).add(uri, count, 0));
+            dirty.set(true);
+        }
+
+        void restore(SpaceSaving summary) {
+            summary.forEach((uri, count, error) -> stripe(uri).add(uri, count, error));
+        }
+
+        void addTo(Map<String, Long> totals) {
+            for (Stripe stripe : stripes) {
+                stripe.forEach((uri, count, error) -> totals.merge(uri, count, Long::sum));
+            }
+        }
+
+        SpaceSaving snapshot() {
+            SpaceSaving merged = new SpaceSaving(Math.ceilDiv(properties.getCapacity(), STRIPES) * STRIPES);
+            for (Stripe stripe : stripes) {
+                stripe.forEach(merged::add);
+            }
+            return merged;
+        }
+
+        private Stripe stripe(String uri) {
+            return stripes[Math.floorMod(uri.hashCode(), STRIPES)];
+        }
+    }
+
+    private record Stripe(SpaceSaving summary, ReentrantLock lock) {
+
+        Stripe(SpaceSaving summary) {
+            this(summary, new ReentrantLock());
+        }
+
+        void add(String uri, long count, long error) {
+            lock.lock();
+            try {
+                summary.add(uri, count, error);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void forEach(SpaceSaving.EntryConsumer consumer) {
+            lock.lock();
+            try {
+                summary.forEach(consumer);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package teamfive.sketch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog с 2^precision регистрами. Стандартная ошибка оценки 1.04 / sqrt(2^precision),
+ * для precision = 12 это около 1.6%. Скетчи объединяются без потери точности.
+ * Пока оценка линейного подсчёта по пустым регистрам ниже порога из HyperLogLog++ (для precision = 12
+ * это 3100), используется она. Её стандартная ошибка sqrt(m * (e^t - t - 1)) / n, где t = n / m:
+ * для precision = 12 около 1.1% при 100 значениях и 1.3% при 3000, десятки значений считаются почти точно.
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+
+    private static final int[] LINEAR_COUNTING_THRESHOLDS = {
+            10, 20, 40, 80, 220, 400, 900, 1800, 3100, 6500, 11500, 20000, 50000};
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Точность HyperLogLog должна быть от 4 до 16: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public static double standardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Нельзя объединить скетчи разной точности");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        if (zeros > 0) {
+            double linear = m * Math.log((double) m / zeros);
+            if (linear <= LINEAR_COUNTING_THRESHOLDS[precision - 4]) {
+                return Math.round(linear);
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        return Math.round(alpha * m * m / sum);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        int sparseSize = 2 + Integer.BYTES + nonZero * 3;
+        if (sparseSize >= 2 + registers.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + registers.length);
+            buffer.put(DENSE).put((byte) precision).put(registers);
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(sparseSize);
+        buffer.put(SPARSE).put((byte) precision).putInt(nonZero);
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] != 0) {
+                buffer.putShort((short) i).put(registers[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (format == DENSE) {
+            buffer.get(sketch.registers);
+        } else {
+            int nonZero = buffer.getInt();
+            for (int i = 0; i < nonZero; i++) {
+                sketch.registers[Short.toUnsignedInt(buffer.getShort())] = buffer.get();
+            }
+        }
+        return sketch;
+    }
+
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,129 @@
+package teamfive.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving с не более чем capacity счётчиками. Новый элемент занимает счётчик самого редкого,
+ * поэтому оценка частоты завышена не больше чем на error. Элемент с частотой выше total / capacity
+ * всегда присутствует в сводке.
+ */
+public class SpaceSaving {
+
+    private static final Comparator<Counter> ORDER = Comparator.comparingLong((Counter counter) -> counter.count)
+            .thenComparing(counter -> counter.item);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> order = new TreeSet<>(ORDER);
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость Space-Saving должна быть положительной: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public void add(String item) {
+        add(item, 1, 0);
+    }
+
+    public void add(String item, long count, long error) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            order.remove(counter);
+            counter.count += count;
+            counter.error += error;
+        } else if (counters.size() < capacity) {
+            counter = new Counter(item, count, error);
+            counters.put(item, counter);
+        } else {
+            Counter evicted = order.pollFirst();
+            counters.remove(evicted.item);
+            counter = new Counter(item, evicted.count + count, evicted.count + error);
+            counters.put(item, counter);
+        }
+        order.add(counter);
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (Counter counter : counters.values()) {
+            consumer.accept(counter.item, counter.count, counter.error);
+        }
+    }
+
+    public List<Entry> top(int limit) {
+        List<Entry> result = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter> iterator = order.descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            Counter counter = iterator.next();
+            result.add(new Entry(counter.item, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(capacity);
+            out.writeInt(counters.size());
+            for (Counter counter : counters.values()) {
+                out.writeUTF(counter.item);
+                out.writeLong(counter.count);
+                out.writeLong(counter.error);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            SpaceSaving summary = new SpaceSaving(in.readInt());
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                summary.add(in.readUTF(), in.readLong(), in.readLong());
+            }
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public record Entry(String item, long count, long error) {
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(String item, long count, long error);
+    }
+
+    private static final class Counter {
+
+        private final String item;
+        private long count;
+        private long error;
+
+        private Counter(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package teamfive.storage;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+
+@Converter
+@RequiredArgsConstructor
+public class HitAppConverter implements AttributeConverter<String, Integer> {
+
+    private final HitDictionary hitDictionary;
+
+    @Override
+    public Integer convertToDatabaseColumn(String app) {
+        return app == null ? null : hitDictionary.appId(app);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : hitDictionary.appName(id);
+    }
+}
@@ -0,0 +1,45 @@
+package teamfive.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import teamfive.model.Hit;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public class HitBatchRepository {
+
+    private static final String INSERT_HIT = """
+            INSERT INTO hits (app_id, uri_id, ip, timestamp)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final int batchSize;
+
+    public HitBatchRepository(JdbcTemplate jdbcTemplate,
+                              HitDictionary hitDictionary,
+                              @Value("${stat.hit.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitDictionary = hitDictionary;
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public int saveAll(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, hitDictionary.appId(hit.getApp()));
+            ps.setLong(2, hitDictionary.uriId(hit.getUri()));
+            ps.setBytes(3, IpAddressCodec.encode(hit.getIp()));
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+        return hits.size();
+    }
+}
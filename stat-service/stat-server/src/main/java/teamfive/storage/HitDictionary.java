@@ -0,0 +1,170 @@
+package teamfive.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Словари app и uri для таблицы hits. Идентификаторы кэшируются в памяти, поэтому запись хитов
+ * обращается к базе только для новых значений. Значение, прочитанное внутри транзакции,
+ * попадает в кэш после её фиксации: до неё строка словаря может быть ещё не зафиксирована.
+ */
+@Repository
+public class HitDictionary {
+
+    private static final String POSTGRES_INSERT = "INSERT INTO %1$s (%2$s) VALUES (?) ON CONFLICT (%2$s) DO NOTHING";
+
+    private static final String MERGE_INSERT = """
+            MERGE INTO %1$s t
+            USING (SELECT CAST(? AS VARCHAR(300)) AS %2$s) v
+            ON t.%2$s = v.%2$s
+            WHEN NOT MATCHED THEN INSERT (%2$s) VALUES (v.%2$s)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertSql;
+    private final Dictionary apps;
+    private final Dictionary uris;
+
+    public HitDictionary(JdbcTemplate jdbcTemplate, @Value("${stat.dictionary.cache-size:100000}") long cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        DatabaseDriver driver = jdbcTemplate.execute((ConnectionCallback<DatabaseDriver>) connection ->
+                DatabaseDriver.fromProductName(connection.getMetaData().getDatabaseProductName()));
+        this.insertSql = driver == DatabaseDriver.POSTGRESQL ? POSTGRES_INSERT : MERGE_INSERT;
+        this.apps = new Dictionary("hit_apps", "name", cacheSize);
+        this.uris = new Dictionary("hit_uris", "uri", cacheSize);
+    }
+
+    public int appId(String app) {
+        return Math.toIntExact(apps.id(app));
+    }
+
+    public String appName(int id) {
+        return apps.value(id);
+    }
+
+    public long uriId(String uri) {
+        return uris.id(uri);
+    }
+
+    public String uri(long id) {
+        return uris.value(id);
+    }
+
+    /**
+     * Возвращает uri из списка, которые уже есть в словаре. Словарь не пополняется: запрос с такими
+     * uri безопасно передавать в JPQL, где конвертер иначе вставил бы в hit_uris каждый неизвестный uri.
+     */
+    public List<String> knownUris(Collection<String> values) {
+        return uris.known(values);
+    }
+
+    private final class Dictionary {
+
+        private final String table;
+        private final String column;
+        private final Cache<String, Long> ids;
+        private final Cache<Long, String> values;
+
+        private Dictionary(String table, String column, long cacheSize) {
+            this.table = table;
+            this.column = column;
+            this.ids = Caffeine.newBuilder().maximumSize(cacheSize).build();
+            this.values = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        }
+
+        long id(String value) {
+            Long cached = ids.getIfPresent(value);
+            if (cached != null) {
+                return cached;
+            }
+            Long id = find(value);
+            if (id == null) {
+                try {
+                    jdbcTemplate.update(insertSql.formatted(table, column), value);
+                } catch (DuplicateKeyException e) {
+                    // MERGE в H2 не атомарен: значение успел вставить параллельный запрос
+                }
+                id = find(value);
+            }
+            rememberAfterCommit(value, id);
+            return id;
+        }
+
+        List<String> known(Collection<String> requested) {
+            List<String> result = new ArrayList<>();
+            List<String> missing = new ArrayList<>();
+            for (String value : new LinkedHashSet<>(requested)) {
+                if (ids.getIfPresent(value) != null) {
+                    result.add(value);
+                } else {
+                    missing.add(value);
+                }
+            }
+            if (missing.isEmpty()) {
+                return result;
+            }
+            String placeholders = String.join(", ", Collections.nCopies(missing.size(), "?"));
+            jdbcTemplate.query("SELECT id, " + column + " FROM " + table + " WHERE " + column + " IN ("
+                    + placeholders + ")", (RowCallbackHandler) rs -> {
+                        String value = rs.getString(2);
+                        rememberAfterCommit(value, rs.getLong(1));
+                        result.add(value);
+                    }, missing.toArray());
+            return result;
+        }
+
+        String value(long id) {
+            String cached = values.getIfPresent(id);
+            if (cached != null) {
+                return cached;
+            }
+            // Запрос выполняется вне вычисления Caffeine: внутри него виртуальный поток закрепляется за носителем
+            List<String> found = jdbcTemplate.queryForList(
+                    "SELECT " + column + " FROM " + table + " WHERE id = ?", String.class, id);
+            if (found.isEmpty()) {
+                return null;
+            }
+            values.put(id, found.get(0));
+            return found.get(0);
+        }
+
+        private Long find(String value) {
+            List<Long> found = jdbcTemplate.queryForList(
+                    "SELECT id FROM " + table + " WHERE " + column + " = ?", Long.class, value);
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        private void rememberAfterCommit(String value, long id) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        remember(value, id);
+                    }
+                });
+            } else {
+                remember(value, id);
+            }
+        }
+
+        private void remember(String value, long id) {
+            ids.put(value, id);
+            values.put(id, value);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package teamfive.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Repository
+public class HitPartitionRepository {
+
+    private static final Pattern MONTH_PARTITION = Pattern.compile("hits_y(\\d{4})m(\\d{2})");
+
+    private static final String IS_PARTITIONED = """
+            SELECT EXISTS (SELECT 1
+                           FROM pg_partitioned_table t
+                           JOIN pg_class c ON c.oid = t.partrelid
+                           WHERE c.relname = 'hits' AND c.relnamespace = current_schema()::regnamespace)
+            """;
+
+    private static final String PARTITIONS = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'hits'::regclass
+            """;
+
+    private static final String CREATE_PARTITION =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF hits FOR VALUES FROM ('%s') TO ('%s')";
+
+    private static final String HAS_DEFAULT_ROWS =
+            "SELECT EXISTS (SELECT 1 FROM hits_default WHERE timestamp >= ? AND timestamp < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean partitioned;
+
+    public HitPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        DatabaseDriver driver = jdbcTemplate.execute((ConnectionCallback<DatabaseDriver>) connection ->
+                DatabaseDriver.fromProductName(connection.getMetaData().getDatabaseProductName()));
+        this.partitioned = driver == DatabaseDriver.POSTGRESQL
+                && Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class));
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * Создаёт секцию за месяц. Если хиты этого месяца уже попали в секцию по умолчанию, Postgres не даст
+     * создать секцию поверх них, поэтому секция по умолчанию отсоединяется, строки месяца переносятся
+     * в новую секцию и секция по умолчанию присоединяется обратно. Всё выполняется в одной транзакции,
+     * вставки в hits на это время ждут.
+     */
+    @Transactional
+    public void createMonthPartition(YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        String create = CREATE_PARTITION.formatted(partitionName(month), from, to);
+        if (!partitioned
+                || !Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_DEFAULT_ROWS, Boolean.class, from, to))) {
+            jdbcTemplate.execute(create);
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE hits DETACH PARTITION hits_default");
+        jdbcTemplate.execute(create);
+        int moved = jdbcTemplate.update(
+                "INSERT INTO hits SELECT * FROM hits_default WHERE timestamp >= ? AND timestamp < ?", from, to);
+        jdbcTemplate.update("DELETE FROM hits_default WHERE timestamp >= ? AND timestamp < ?", from, to);
+        jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION hits_default DEFAULT");
+        log.info("Хиты за {} перенесены из секции по умолчанию в новую секцию: строк = {}", month, moved);
+    }
+
+    public List<YearMonth> findMonthPartitions() {
+        return jdbcTemplate.queryForList(PARTITIONS, String.class).stream()
+                .map(name -> {
+                    Matcher matcher = MONTH_PARTITION.matcher(name);
+                    return matcher.matches()
+                            ? YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)))
+                            : null;
+                })
+                .filter(Objects::nonNull)
+                .sorted()
+                .toList();
+    }
+
+    public void dropMonthPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    public int deleteBefore(LocalDateTime cutoff) {
+        String table = partitioned ? "hits_default" : "hits";
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE timestamp < ?", cutoff);
+    }
+
+    private String partitionName(YearMonth month) {
+        return "hits_y%04dm%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+}
@@ -0,0 +1,244 @@
+package teamfive.storage;
+
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import teamfive.model.BucketKey;
+import teamfive.model.RollupGranularity;
+import teamfive.model.RollupRange;
+import teamfive.model.StatHit;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+@Repository
+public class HitRollupRepository {
+
+    private static final String POSTGRES_UPSERT = """
+            INSERT INTO hit_rollups (granularity, app, uri, bucket_start, hits)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, uri, bucket_start, app)
+            DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits
+            """;
+
+    private static final String MERGE_UPSERT = """
+            MERGE INTO hit_rollups r
+            USING (SELECT CAST(? AS VARCHAR(10)) AS granularity,
+                          CAST(? AS VARCHAR(100)) AS app,
+                          CAST(? AS VARCHAR(300)) AS uri,
+                          CAST(? AS TIMESTAMP) AS bucket_start,
+                          CAST(? AS BIGINT) AS hits) v
+            ON r.granularity = v.granularity AND r.uri = v.uri
+               AND r.bucket_start = v.bucket_start AND r.app = v.app
+            WHEN MATCHED THEN UPDATE SET hits = r.hits + v.hits
+            WHEN NOT MATCHED THEN INSERT (granularity, app, uri, bucket_start, hits)
+                VALUES (v.granularity, v.app, v.uri, v.bucket_start, v.hits)
+            """;
+
+    private static final String ROLLUPS_BY_ID = """
+            SELECT '%1$s' AS granularity, a.name AS app, u.uri, r.bucket_start, r.hits
+            FROM (
+                SELECT app_id, uri_id, DATE_TRUNC('%1$s', timestamp) AS bucket_start, COUNT(*) AS hits
+                FROM hits
+                WHERE id > ? AND id <= ?
+                GROUP BY app_id, uri_id, DATE_TRUNC('%1$s', timestamp)
+            ) r
+            JOIN hit_apps a ON a.id = r.app_id
+            JOIN hit_uris u ON u.id = r.uri_id
+            """;
+
+    private static final String POSTGRES_BACKFILL = """
+            INSERT INTO hit_rollups (granularity, app, uri, bucket_start, hits)
+            %s
+            ON CONFLICT (granularity, uri, bucket_start, app)
+            DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits
+            """;
+
+    private static final String MERGE_BACKFILL = """
+            MERGE INTO hit_rollups r
+            USING (%s) v
+            ON r.granularity = v.granularity AND r.uri = v.uri
+               AND r.bucket_start = v.bucket_start AND r.app = v.app
+            WHEN MATCHED THEN UPDATE SET hits = r.hits + v.hits
+            WHEN NOT MATCHED THEN INSERT (granularity, app, uri, bucket_start, hits)
+                VALUES (v.granularity, v.app, v.uri, v.bucket_start, v.hits)
+            """;
+
+    private static final String NON_UNIQUE_STAT = """
+            SELECT s.app, s.uri, SUM(s.hits) AS hits
+            FROM (
+                SELECT app, uri, hits
+                FROM hit_rollups
+                WHERE granularity = 'DAY'
+                  AND bucket_start >= :dayStart AND bucket_start < :dayEnd %1$s
+                UNION ALL
+                SELECT app, uri, hits
+                FROM hit_rollups
+                WHERE granularity = 'HOUR'
+                  AND (bucket_start >= :hourStart AND bucket_start < :dayStart
+                       OR bucket_start >= :dayEnd AND bucket_start < :hourEnd) %1$s
+                UNION ALL
+                SELECT a.name AS app, u.uri, e.hits
+                FROM (
+                    SELECT app_id, uri_id, COUNT(*) AS hits
+                    FROM hits
+                    WHERE (timestamp >= :start AND timestamp < :hourStart
+                           OR timestamp >= :hourEnd AND timestamp <= :end) %2$s
+                    GROUP BY app_id, uri_id
+                ) e
+                JOIN hit_apps a ON a.id = e.app_id
+                JOIN hit_uris u ON u.id = e.uri_id
+            ) s
+            GROUP BY s.app, s.uri
+            ORDER BY hits DESC
+            %3$s
+            """;
+
+    private static final String URI_FILTER = "AND uri IN (:uris)";
+
+    private static final String URI_ID_FILTER = "AND uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:uris))";
+
+    private static final String LIMIT = "LIMIT :limit";
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final String upsertSql;
+    private final String backfillSql;
+
+    public HitRollupRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+        DatabaseDriver driver = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<DatabaseDriver>) connection ->
+                DatabaseDriver.fromProductName(connection.getMetaData().getDatabaseProductName()));
+        this.upsertSql = driver == DatabaseDriver.POSTGRESQL ? POSTGRES_UPSERT : MERGE_UPSERT;
+        this.backfillSql = driver == DatabaseDriver.POSTGRESQL ? POSTGRES_BACKFILL : MERGE_BACKFILL;
+    }
+
+    /**
+     * Прибавляет счётчики к агрегатам. Строки обновляются в одном порядке, чтобы параллельные
+     * записи не блокировали друг друга крест-накрест.
+     */
+    public void merge(Map<BucketKey, Long> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, Long> ordered = new TreeMap<>(BucketKey.ORDER);
+        ordered.putAll(increments);
+        jdbcTemplate.getJdbcTemplate().batchUpdate(upsertSql, new ArrayList<>(ordered.entrySet()),
+                ordered.size(), (ps, increment) -> {
+                    BucketKey key = increment.getKey();
+                    ps.setString(1, key.granularity().name());
+                    ps.setString(2, key.app());
+                    ps.setString(3, key.uri());
+                    ps.setTimestamp(4, Timestamp.valueOf(key.bucketStart()));
+                    ps.setLong(5, increment.getValue());
+                });
+    }
+
+    /**
+     * Прибавляет к агрегатам хиты с id в (fromExclusive, toInclusive].
+     */
+    public void backfill(long fromExclusive, long toInclusive) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            jdbcTemplate.getJdbcTemplate().update(backfillSql.formatted(ROLLUPS_BY_ID.formatted(granularity.name())),
+                    fromExclusive, toInclusive);
+        }
+    }
+
+    /**
+     * Удаляет агрегаты за периоды, целиком закончившиеся до before.
+     */
+    public int deleteBefore(RollupGranularity granularity, LocalDateTime before) {
+        return jdbcTemplate.getJdbcTemplate().update(
+                "DELETE FROM hit_rollups WHERE granularity = ? AND bucket_start < ?",
+                granularity.name(), Timestamp.valueOf(granularity.floor(before)));
+    }
+
+    public long findLastHitId() {
+        Long lastHitId = jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT COALESCE(MAX(id), 0) FROM hits", Long.class);
+        return lastHitId == null ? 0 : lastHitId;
+    }
+
+    /**
+     * Наибольший id хита, покрытого агрегатами, или null, если агрегаты ведутся для всех хитов.
+     */
+    public Long findWatermark() {
+        return jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT last_hit_id FROM hit_rollup_watermark WHERE id = 1", Long.class);
+    }
+
+    public void saveWatermark(Long lastHitId) {
+        jdbcTemplate.getJdbcTemplate().update("UPDATE hit_rollup_watermark SET last_hit_id = ? WHERE id = 1",
+                lastHitId);
+    }
+
+    /**
+     * Фиксирует покрытие текущими хитами, если агрегаты велись для всех хитов: последующие хиты
+     * записываются без агрегатов.
+     */
+    public void freezeWatermark() {
+        jdbcTemplate.getJdbcTemplate().update("""
+                UPDATE hit_rollup_watermark
+                SET last_hit_id = (SELECT COALESCE(MAX(id), 0) FROM hits)
+                WHERE id = 1 AND last_hit_id IS NULL
+                """);
+    }
+
+    public List<StatHit> getNonUniqueStat(RollupRange range, List<String> uris) {
+        return getNonUniqueStat(range, uris, null);
+    }
+
+    public List<StatHit> getNonUniqueStat(RollupRange range, List<String> uris, Integer limit) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(nonUniqueStatSql(uris, limit), rangeParams(range, uris, limit), (rs, rowNum) ->
+                new StatHit(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    /**
+     * Построчное чтение курсором: для Postgres требуется активная транзакция, иначе драйвер
+     * загрузит весь результат целиком.
+     */
+    public void streamNonUniqueStat(RollupRange range, List<String> uris, Integer limit,
+                                    Consumer<StatHit> consumer) {
+        if (uris != null && uris.isEmpty()) {
+            return;
+        }
+        streamingJdbcTemplate.query(nonUniqueStatSql(uris, limit), rangeParams(range, uris, limit), rs -> {
+            consumer.accept(new StatHit(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+        });
+    }
+
+    private String nonUniqueStatSql(List<String> uris, Integer limit) {
+        String limitClause = limit == null ? "" : LIMIT;
+        return uris == null
+                ? NON_UNIQUE_STAT.formatted("", "", limitClause)
+                : NON_UNIQUE_STAT.formatted(URI_FILTER, URI_ID_FILTER, limitClause);
+    }
+
+    private MapSqlParameterSource rangeParams(RollupRange range, List<String> uris, Integer limit) {
+        return new MapSqlParameterSource()
+                .addValue("start", range.getStart())
+                .addValue("end", range.getEnd())
+                .addValue("hourStart", range.getHourStart())
+                .addValue("hourEnd", range.getHourEnd())
+                .addValue("dayStart", range.getDayStart())
+                .addValue("dayEnd", range.getDayEnd())
+                .addValue("uris", uris)
+                .addValue("limit", limit);
+    }
+}
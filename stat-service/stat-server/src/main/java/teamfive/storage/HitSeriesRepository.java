@@ -0,0 +1,112 @@
+package teamfive.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import teamfive.model.SeriesRange;
+import teamfive.model.StatSeriesHit;
+import teamfive.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitSeriesRepository {
+
+    private static final String ROLLUP_SERIES = """
+            SELECT app, uri, bucket_start, hits
+            FROM hit_rollups
+            WHERE granularity = :granularity
+              AND bucket_start >= :bucketStart AND bucket_start < :bucketEnd %s
+            UNION ALL
+            """;
+
+    private static final String EDGE_SERIES = """
+            SELECT a.name AS app, u.uri, e.bucket_start, e.hits
+            FROM (
+                SELECT app_id, uri_id, DATE_TRUNC('%1$s', timestamp) AS bucket_start, %2$s AS hits
+                FROM hits
+                WHERE (timestamp >= :start AND timestamp < :bucketStart
+                       OR timestamp >= :bucketEnd AND timestamp <= :end) %3$s
+                GROUP BY app_id, uri_id, DATE_TRUNC('%1$s', timestamp)
+            ) e
+            JOIN hit_apps a ON a.id = e.app_id
+            JOIN hit_uris u ON u.id = e.uri_id
+            """;
+
+    private static final String ORDER = "ORDER BY app, uri, bucket_start";
+
+    private static final String SKETCH_SERIES = """
+            SELECT app, uri, bucket_start, registers
+            FROM hit_sketches
+            WHERE granularity = :granularity
+              AND bucket_start >= :bucketStart AND bucket_start < :bucketEnd %s
+            """;
+
+    private static final String URI_FILTER = "AND uri IN (:uris)";
+
+    private static final String URI_ID_FILTER = "AND uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:uris))";
+
+    private static final RowMapper<StatSeriesHit> SERIES_HIT = (rs, rowNum) -> new StatSeriesHit(rs.getString("app"),
+            rs.getString("uri"), rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getLong("hits"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Полные корзины из hit_rollups, неполные корзины по краям из hits.
+     */
+    public List<StatSeriesHit> getNonUniqueSeries(SeriesRange range, List<String> uris) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        String sql = ROLLUP_SERIES.formatted(uriFilter(uris)) + edgeSeries(range, "COUNT(*)", uris) + ORDER;
+        return jdbcTemplate.query(sql, rangeParams(range, uris), SERIES_HIT);
+    }
+
+    /**
+     * Точное число уникальных ip по сырым хитам только для неполных корзин по краям.
+     */
+    public List<StatSeriesHit> getUniqueEdgeSeries(SeriesRange range, List<String> uris) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        String sql = edgeSeries(range, "COUNT(DISTINCT ip)", uris) + ORDER;
+        return jdbcTemplate.query(sql, rangeParams(range, uris), SERIES_HIT);
+    }
+
+    public void forEachSketch(SeriesRange range, List<String> uris, SketchConsumer consumer) {
+        if (uris != null && uris.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(SKETCH_SERIES.formatted(uriFilter(uris)), rangeParams(range, uris), rs -> {
+            consumer.accept(rs.getString("app"), rs.getString("uri"), rs.getTimestamp("bucket_start").toLocalDateTime(),
+                    HyperLogLog.fromBytes(rs.getBytes("registers")));
+        });
+    }
+
+    private String edgeSeries(SeriesRange range, String aggregate, List<String> uris) {
+        return EDGE_SERIES.formatted(range.getGranularity().name(), aggregate, uris == null ? "" : URI_ID_FILTER);
+    }
+
+    private MapSqlParameterSource rangeParams(SeriesRange range, List<String> uris) {
+        return new MapSqlParameterSource()
+                .addValue("granularity", range.getGranularity().name())
+                .addValue("start", range.getStart())
+                .addValue("end", range.getEnd())
+                .addValue("bucketStart", range.getBucketStart())
+                .addValue("bucketEnd", range.getBucketEnd())
+                .addValue("uris", uris);
+    }
+
+    private String uriFilter(List<String> uris) {
+        return uris == null ? "" : URI_FILTER;
+    }
+
+    @FunctionalInterface
+    public interface SketchConsumer {
+        void accept(String app, String uri, LocalDateTime bucketStart, HyperLogLog sketch);
+    }
+}
@@ -0,0 +1,230 @@
+package teamfive.storage;
+
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import teamfive.model.BucketKey;
+import teamfive.model.RollupGranularity;
+import teamfive.model.RollupRange;
+import teamfive.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+@Repository
+public class HitSketchRepository {
+
+    private static final String SELECT_FOR_UPDATE = """
+            SELECT registers
+            FROM hit_sketches
+            WHERE granularity = :granularity AND uri = :uri AND bucket_start = :bucketStart AND app = :app
+            FOR UPDATE
+            """;
+
+    private static final String POSTGRES_INSERT_IF_ABSENT = """
+            INSERT INTO hit_sketches (granularity, app, uri, bucket_start, registers)
+            VALUES (:granularity, :app, :uri, :bucketStart, :registers)
+            ON CONFLICT (granularity, uri, bucket_start, app) DO NOTHING
+            """;
+
+    private static final String MERGE_INSERT_IF_ABSENT = """
+            MERGE INTO hit_sketches s
+            USING (SELECT CAST(:granularity AS VARCHAR(10)) AS granularity,
+                          CAST(:app AS VARCHAR(100)) AS app,
+                          CAST(:uri AS VARCHAR(300)) AS uri,
+                          CAST(:bucketStart AS TIMESTAMP) AS bucket_start,
+                          CAST(:registers AS BYTEA) AS registers) v
+            ON s.granularity = v.granularity AND s.uri = v.uri
+               AND s.bucket_start = v.bucket_start AND s.app = v.app
+            WHEN NOT MATCHED THEN INSERT (granularity, app, uri, bucket_start, registers)
+                VALUES (v.granularity, v.app, v.uri, v.bucket_start, v.registers)
+            """;
+
+    private static final String UPDATE = """
+            UPDATE hit_sketches
+            SET registers = :registers
+            WHERE granularity = :granularity AND uri = :uri AND bucket_start = :bucketStart AND app = :app
+            """;
+
+    private static final String SKETCHES_IN_RANGE = """
+            SELECT app, uri, registers
+            FROM hit_sketches
+            WHERE (granularity = 'DAY' AND bucket_start >= :dayStart AND bucket_start < :dayEnd
+                   OR granularity = 'HOUR' AND (bucket_start >= :hourStart AND bucket_start < :dayStart
+                                                OR bucket_start >= :dayEnd AND bucket_start < :hourEnd)) %s
+            """;
+
+    private static final String EDGE_IPS = """
+            SELECT a.name AS app, u.uri, e.ip
+            FROM (
+                SELECT DISTINCT app_id, uri_id, ip
+                FROM hits
+                WHERE (timestamp >= :start AND timestamp < :hourStart
+                       OR timestamp >= :hourEnd AND timestamp <= :end) %s
+            ) e
+            JOIN hit_apps a ON a.id = e.app_id
+            JOIN hit_uris u ON u.id = e.uri_id
+            """;
+
+    private static final String HITS_IN_RANGE = """
+            SELECT a.name AS app, u.uri, h.ip, h.timestamp
+            FROM hits h
+            JOIN hit_apps a ON a.id = h.app_id
+            JOIN hit_uris u ON u.id = h.uri_id
+            WHERE h.timestamp >= :from AND h.timestamp < :to
+            """;
+
+    private static final String HITS_BY_ID = """
+            SELECT a.name AS app, u.uri, h.ip, h.timestamp
+            FROM hits h
+            JOIN hit_apps a ON a.id = h.app_id
+            JOIN hit_uris u ON u.id = h.uri_id
+            WHERE h.id > :from AND h.id <= :to
+            """;
+
+    private static final String URI_FILTER = "AND uri IN (:uris)";
+
+    private static final String URI_ID_FILTER = "AND uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:uris))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String insertIfAbsentSql;
+
+    public HitSketchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        DatabaseDriver driver = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<DatabaseDriver>) connection ->
+                DatabaseDriver.fromProductName(connection.getMetaData().getDatabaseProductName()));
+        this.insertIfAbsentSql = driver == DatabaseDriver.POSTGRESQL ? POSTGRES_INSERT_IF_ABSENT
+                : MERGE_INSERT_IF_ABSENT;
+    }
+
+    /**
+     * Объединяет скетчи с сохранёнными. Новая корзина вставляется без конфликта ключа, существующая
+     * блокируется и перезаписывается объединением. Строки обрабатываются в порядке первичного ключа,
+     * чтобы параллельные записи не блокировали друг друга крест-накрест.
+     */
+    public void merge(Map<BucketKey, HyperLogLog> sketches) {
+        Map<BucketKey, HyperLogLog> ordered = new TreeMap<>(BucketKey.ORDER);
+        ordered.putAll(sketches);
+        for (Map.Entry<BucketKey, HyperLogLog> entry : ordered.entrySet()) {
+            HyperLogLog sketch = entry.getValue();
+            MapSqlParameterSource params = keyParams(entry.getKey()).addValue("registers", sketch.toBytes());
+            if (jdbcTemplate.update(insertIfAbsentSql, params) > 0) {
+                continue;
+            }
+            List<byte[]> stored = jdbcTemplate.query(SELECT_FOR_UPDATE, params,
+                    (rs, rowNum) -> rs.getBytes("registers"));
+            HyperLogLog merged = HyperLogLog.fromBytes(stored.get(0));
+            merged.merge(sketch);
+            jdbcTemplate.update(UPDATE, params.addValue("registers", merged.toBytes()));
+        }
+    }
+
+    /**
+     * Удаляет скетчи за периоды, целиком закончившиеся до before.
+     */
+    public int deleteBefore(RollupGranularity granularity, LocalDateTime before) {
+        return jdbcTemplate.getJdbcTemplate().update(
+                "DELETE FROM hit_sketches WHERE granularity = ? AND bucket_start < ?",
+                granularity.name(), Timestamp.valueOf(granularity.floor(before)));
+    }
+
+    public long findLastHitId() {
+        Long lastHitId = jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT COALESCE(MAX(id), 0) FROM hits", Long.class);
+        return lastHitId == null ? 0 : lastHitId;
+    }
+
+    public long findWatermark() {
+        Long watermark = jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT last_hit_id FROM hit_sketch_watermark WHERE id = 1", Long.class);
+        return watermark == null ? 0 : watermark;
+    }
+
+    public void saveWatermark(long lastHitId) {
+        jdbcTemplate.getJdbcTemplate().update(
+                "UPDATE hit_sketch_watermark SET last_hit_id = GREATEST(last_hit_id, ?) WHERE id = 1", lastHitId);
+    }
+
+    public boolean isEmpty() {
+        Boolean empty = jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT NOT EXISTS (SELECT 1 FROM hit_sketches)", Boolean.class);
+        return Boolean.TRUE.equals(empty);
+    }
+
+    public void forEachSketch(RollupRange range, List<String> uris, SketchConsumer consumer) {
+        jdbcTemplate.query(SKETCHES_IN_RANGE.formatted(uriFilter(uris)), rangeParams(range, uris), rs -> {
+            consumer.accept(rs.getString("app"), rs.getString("uri"), HyperLogLog.fromBytes(rs.getBytes("registers")));
+        });
+    }
+
+    public void forEachEdgeIp(RollupRange range, List<String> uris, HitConsumer consumer) {
+        String sql = EDGE_IPS.formatted(uris == null ? "" : URI_ID_FILTER);
+        jdbcTemplate.query(sql, rangeParams(range, uris), rs -> {
+            consumer.accept(rs.getString("app"), rs.getString("uri"), IpAddressCodec.decode(rs.getBytes("ip")), null);
+        });
+    }
+
+    public Optional<LocalDateTime> findFirstHitTimestamp() {
+        return Optional.ofNullable(jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT MIN(timestamp) FROM hits", LocalDateTime.class));
+    }
+
+    public void forEachHit(LocalDateTime from, LocalDateTime to, HitConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to);
+        jdbcTemplate.query(HITS_IN_RANGE, params, rs -> {
+            consumer.accept(rs.getString("app"), rs.getString("uri"), IpAddressCodec.decode(rs.getBytes("ip")),
+                    rs.getTimestamp("timestamp").toLocalDateTime());
+        });
+    }
+
+    public void forEachHitById(long fromExclusive, long toInclusive, HitConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", fromExclusive)
+                .addValue("to", toInclusive);
+        jdbcTemplate.query(HITS_BY_ID, params, rs -> {
+            consumer.accept(rs.getString("app"), rs.getString("uri"), IpAddressCodec.decode(rs.getBytes("ip")),
+                    rs.getTimestamp("timestamp").toLocalDateTime());
+        });
+    }
+
+    private MapSqlParameterSource keyParams(BucketKey key) {
+        return new MapSqlParameterSource()
+                .addValue("granularity", key.granularity().name())
+                .addValue("app", key.app())
+                .addValue("uri", key.uri())
+                .addValue("bucketStart", Timestamp.valueOf(key.bucketStart()));
+    }
+
+    private MapSqlParameterSource rangeParams(RollupRange range, List<String> uris) {
+        return new MapSqlParameterSource()
+                .addValue("start", range.getStart())
+                .addValue("end", range.getEnd())
+                .addValue("hourStart", range.getHourStart())
+                .addValue("hourEnd", range.getHourEnd())
+                .addValue("dayStart", range.getDayStart())
+                .addValue("dayEnd", range.getDayEnd())
+                .addValue("uris", uris);
+    }
+
+    private String uriFilter(List<String> uris) {
+        return uris == null ? "" : URI_FILTER;
+    }
+
+    @FunctionalInterface
+    public interface SketchConsumer {
+        void accept(String app, String uri, HyperLogLog sketch);
+    }
+
+    @FunctionalInterface
+    public interface HitConsumer {
+        void accept(String app, String uri, String ip, LocalDateTime timestamp);
+    }
+}
@@ -0,0 +1,54 @@
+package teamfive.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import teamfive.sketch.SpaceSaving;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Repository
+@RequiredArgsConstructor
+public class HitTopRepository {
+
+    private static final String DELETE = """
+            DELETE FROM hit_top_checkpoints
+            WHERE granularity = ? AND app = ? AND bucket_start = ?
+            """;
+
+    private static final String INSERT = """
+            INSERT INTO hit_top_checkpoints (granularity, app, bucket_start, summary)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void save(ChronoUnit granularity, String app, LocalDateTime bucketStart, byte[] summary) {
+        Timestamp timestamp = Timestamp.valueOf(bucketStart);
+        jdbcTemplate.update(DELETE, granularity.name(), app, timestamp);
+        jdbcTemplate.update(INSERT, granularity.name(), app, timestamp, summary);
+    }
+
+    public int deleteBefore(ChronoUnit granularity, LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM hit_top_checkpoints WHERE granularity = ? AND bucket_start < ?",
+                granularity.name(), Timestamp.valueOf(before));
+    }
+
+    public void forEach(ChronoUnit granularity, LocalDateTime from, CheckpointConsumer consumer) {
+        jdbcTemplate.query("""
+                SELECT app, bucket_start, summary
+                FROM hit_top_checkpoints
+                WHERE granularity = ? AND bucket_start >= ?
+                """, rs -> {
+            consumer.accept(rs.getString("app"), rs.getTimestamp("bucket_start").toLocalDateTime(),
+                    SpaceSaving.fromBytes(rs.getBytes("summary")));
+        }, granularity.name(), Timestamp.valueOf(from));
+    }
+
+    @FunctionalInterface
+    public interface CheckpointConsumer {
+        void accept(String app, LocalDateTime bucketStart, SpaceSaving summary);
+    }
+}
@@ -0,0 +1,22 @@
+package teamfive.storage;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+
+@Converter
+@RequiredArgsConstructor
+public class HitUriConverter implements AttributeConverter<String, Long> {
+
+    private final HitDictionary hitDictionary;
+
+    @Override
+    public Long convertToDatabaseColumn(String uri) {
+        return uri == null ? null : hitDictionary.uriId(uri);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Long id) {
+        return id == null ? null : hitDictionary.uri(id);
+    }
+}
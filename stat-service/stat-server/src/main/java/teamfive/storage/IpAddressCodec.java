@@ -0,0 +1,68 @@
+package teamfive.storage;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Двоичное представление ip: 0x04 + 4 байта для IPv4, 0x06 + 16 байт для IPv6,
+ * 0x00 + UTF-8 для строк, которые не являются адресом в канонической записи.
+ */
+public final class IpAddressCodec {
+
+    private static final byte TEXT = 0;
+    private static final byte IPV4 = 4;
+    private static final byte IPV6 = 6;
+
+    private static final Pattern IPV4_PATTERN = Pattern.compile(
+            "(25[0-5]|2[0-4][0-9]|1[0-9]{2}|[1-9]?[0-9])(\\.(25[0-5]|2[0-4][0-9]|1[0-9]{2}|[1-9]?[0-9])){3}");
+    private static final Pattern IPV6_PATTERN = Pattern.compile("[0-9A-Fa-f:.]*:[0-9A-Fa-f:.]*");
+
+    private IpAddressCodec() {
+    }
+
+    public static byte[] encode(String ip) {
+        if (IPV4_PATTERN.matcher(ip).matches()) {
+            byte[] bytes = new byte[5];
+            bytes[0] = IPV4;
+            String[] octets = ip.split("\\.");
+            for (int i = 0; i < 4; i++) {
+                bytes[i + 1] = (byte) Integer.parseInt(octets[i]);
+            }
+            return bytes;
+        }
+        if (IPV6_PATTERN.matcher(ip).matches()) {
+            try {
+                byte[] address = InetAddress.getByName(ip).getAddress();
+                byte[] bytes = new byte[address.length + 1];
+                bytes[0] = address.length == 4 ? IPV4 : IPV6;
+                System.arraycopy(address, 0, bytes, 1, address.length);
+                return bytes;
+            } catch (UnknownHostException e) {
+                // не адрес, сохраняется как строка
+            }
+        }
+        byte[] text = ip.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[text.length + 1];
+        bytes[0] = TEXT;
+        System.arraycopy(text, 0, bytes, 1, text.length);
+        return bytes;
+    }
+
+    public static String decode(byte[] bytes) {
+        if (bytes[0] == TEXT) {
+            return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+        }
+        try {
+            return InetAddress.getByAddress(Arrays.copyOfRange(bytes, 1, bytes.length)).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Некорректный двоичный ip длиной " + bytes.length, e);
+        }
+    }
+
+    public static String normalize(String ip) {
+        return decode(encode(ip));
+    }
+}
@@ -0,0 +1,18 @@
+package teamfive.storage;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String ip) {
+        return ip == null ? null : IpAddressCodec.encode(ip);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : IpAddressCodec.decode(bytes);
+    }
+}
@@ -0,0 +1,90 @@
+package teamfive.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import teamfive.model.StatHit;
+import teamfive.model.StatQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Статистика по нескольким интервалам одним запросом. Хиты из объединения интервалов читаются
+ * один раз и соединяются с таблицей номеров интервалов, в которые они попадают.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatQueryRepository {
+
+    private static final String MULTI_RANGE_STAT = """
+            SELECT s.idx, a.name AS app, u.uri, s.hits, s.unique_hits
+            FROM (
+                SELECT q.idx, h.app_id, h.uri_id, COUNT(*) AS hits, %2$s AS unique_hits
+                FROM hits h
+                JOIN (VALUES %1$s) AS q(idx) ON %3$s
+                WHERE h.timestamp >= :start AND h.timestamp <= :end %4$s
+                GROUP BY q.idx, h.app_id, h.uri_id
+            ) s
+            JOIN hit_apps a ON a.id = s.app_id
+            JOIN hit_uris u ON u.id = s.uri_id
+            """;
+
+    private static final String RANGE_CONDITION = "q.idx = %1$d AND h.timestamp >= :start%1$d AND h.timestamp <= :end%1$d";
+
+    private static final String URI_ID_FILTER = "AND h.uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:%s))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<List<StatHit>> getStats(List<StatQuery> queries) {
+        List<List<StatHit>> results = new ArrayList<>();
+        StringJoiner rows = new StringJoiner(", ");
+        StringJoiner conditions = new StringJoiner(" OR ");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        Set<String> allUris = new LinkedHashSet<>();
+        boolean allFiltered = true;
+        boolean anyUnique = false;
+        for (int i = 0; i < queries.size(); i++) {
+            StatQuery query = queries.get(i);
+            results.add(new ArrayList<>());
+            if (query.uris() != null && query.uris().isEmpty()) {
+                continue;
+            }
+            rows.add("(" + i + ")");
+            String condition = RANGE_CONDITION.formatted(i);
+            params.addValue("start" + i, query.start()).addValue("end" + i, query.end());
+            if (query.uris() == null) {
+                allFiltered = false;
+            } else {
+                condition += " " + URI_ID_FILTER.formatted("uris" + i);
+                params.addValue("uris" + i, query.uris());
+                allUris.addAll(query.uris());
+            }
+            conditions.add("(" + condition + ")");
+            start = start == null || query.start().isBefore(start) ? query.start() : start;
+            end = end == null || query.end().isAfter(end) ? query.end() : end;
+            anyUnique |= query.unique();
+        }
+        if (start == null) {
+            return results;
+        }
+        params.addValue("start", start).addValue("end", end).addValue("uris", List.copyOf(allUris));
+        String sql = MULTI_RANGE_STAT.formatted(rows, anyUnique ? "COUNT(DISTINCT h.ip)" : "0", conditions,
+                allFiltered ? URI_ID_FILTER.formatted("uris") : "");
+        jdbcTemplate.query(sql, params, rs -> {
+            int idx = rs.getInt("idx");
+            long hits = queries.get(idx).unique() ? rs.getLong("unique_hits") : rs.getLong("hits");
+            results.get(idx).add(new StatHit(rs.getString("app"), rs.getString("uri"), hits));
+        });
+        results.forEach(result -> result.sort(Comparator.comparing(StatHit::getHits).reversed()));
+        return results;
+    }
+}
@@ -1,16 +1,22 @@
 package teamfive.storage;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import teamfive.model.Hit;
 import teamfive.model.StatHit;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface StatRepository extends JpaRepository<Hit, Long> {
-    @Query(value = """
+
+    String NON_UNIQUE_STAT = """
             SELECT new teamfive.model.StatHit(h.app,
                    h.uri,
                    COUNT(h.ip))
@@ -19,14 +25,9 @@ public interface StatRepository extends JpaRepository<Hit, Long> {
             AND (:uris IS NULL OR h.uri IN :uris)
             GROUP BY h.app, h.uri
             ORDER BY COUNT(h.ip) DESC
-            """)
-    List<StatHit> getNonUniqueStat(
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end,
-            @Param("uris") List<String> uris
-    );
+            """;
 
-    @Query(value = """
+    String UNIQUE_STAT = """
             SELECT new teamfive.model.StatHit(h.app,
                    h.uri,
                    COUNT(DISTINCT(h.ip)))
@@ -35,10 +36,52 @@ public interface StatRepository extends JpaRepository<Hit, Long> {
             AND (:uris IS NULL OR h.uri IN :uris)
             GROUP BY h.app, h.uri
             ORDER BY COUNT(DISTINCT(h.ip)) DESC
-            """)
+            """;
+
+    String STREAM_FETCH_SIZE = "1000";
+
+    default List<StatHit> getNonUniqueStat(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return getNonUniqueStat(start, end, uris, Limit.unlimited());
+    }
+
+    default List<StatHit> getUniqueStat(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return getUniqueStat(start, end, uris, Limit.unlimited());
+    }
+
+    @Query(NON_UNIQUE_STAT)
+    List<StatHit> getNonUniqueStat(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("uris") List<String> uris,
+            Limit limit
+    );
+
+    @Query(UNIQUE_STAT)
     List<StatHit> getUniqueStat(
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end,
-            @Param("uris") List<String> uris
+            @Param("uris") List<String> uris,
+            Limit limit
+    );
+
+    /**
+     * Построчное чтение курсором. Поток должен читаться и закрываться внутри транзакции.
+     */
+    @Query(NON_UNIQUE_STAT)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<StatHit> streamNonUniqueStat(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("uris") List<String> uris,
+            Limit limit
+    );
+
+    @Query(UNIQUE_STAT)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<StatHit> streamUniqueStat(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("uris") List<String> uris,
+            Limit limit
     );
 }
@@ -0,0 +1,10 @@
+-- Покрытие hit_rollups. NULL: агрегаты прибавляются в транзакции каждой записи хитов.
+-- Число: агрегаты есть только у хитов с id не больше него, остальные записаны при
+-- stat.rollup.enabled=false и досчитываются при старте с включёнными агрегатами.
+CREATE TABLE IF NOT EXISTS hit_rollup_watermark (
+  id INTEGER PRIMARY KEY,
+  last_hit_id BIGINT
+);
+
+INSERT INTO hit_rollup_watermark (id, last_hit_id)
+SELECT 1, CASE WHEN EXISTS (SELECT 1 FROM hit_rollups) THEN NULL ELSE 0 END;
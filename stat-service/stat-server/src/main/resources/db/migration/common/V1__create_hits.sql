@@ -1,4 +1,3 @@
-
 CREATE TABLE IF NOT EXISTS hits (
   id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   app VARCHAR(100) NOT NULL,
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS hit_rollups (
+  granularity VARCHAR(10) NOT NULL,
+  app VARCHAR(100) NOT NULL,
+  uri VARCHAR(300) NOT NULL,
+  bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  hits BIGINT NOT NULL,
+  PRIMARY KEY (granularity, uri, bucket_start, app)
+);
+
+CREATE INDEX IF NOT EXISTS hit_rollups_bucket_idx ON hit_rollups (granularity, bucket_start);
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS hit_apps (
+  id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS hit_uris (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  uri VARCHAR(300) NOT NULL UNIQUE
+);
@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS hit_top_checkpoints (
+  granularity VARCHAR(10) NOT NULL,
+  app VARCHAR(100) NOT NULL,
+  bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  summary BYTEA NOT NULL,
+  PRIMARY KEY (granularity, app, bucket_start)
+);
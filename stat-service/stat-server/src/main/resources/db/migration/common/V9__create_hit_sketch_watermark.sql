@@ -0,0 +1,10 @@
+-- Наибольший id хита, вклад которого уже записан в hit_sketches. При старте хиты после него
+-- повторно добавляются в скетчи: объединение скетчей идемпотентно.
+CREATE TABLE IF NOT EXISTS hit_sketch_watermark (
+  id INTEGER PRIMARY KEY,
+  last_hit_id BIGINT NOT NULL
+);
+
+INSERT INTO hit_sketch_watermark (id, last_hit_id)
+SELECT 1, COALESCE(MAX(id), 0)
+FROM hits;
@@ -0,0 +1,4 @@
+-- В H2 нет INCLUDE, покрывающие столбцы добавлены в конец ключа
+CREATE INDEX IF NOT EXISTS hits_uri_timestamp_idx ON hits (uri, timestamp, app, ip);
+
+CREATE INDEX IF NOT EXISTS hits_timestamp_uri_idx ON hits (timestamp, uri, app, ip);
@@ -0,0 +1,26 @@
+-- H2 используется только в тестах: существующие ip переносятся в текстовой форме (0x00 + UTF-8)
+INSERT INTO hit_apps (name) SELECT DISTINCT app FROM hits WHERE app NOT IN (SELECT name FROM hit_apps);
+INSERT INTO hit_uris (uri) SELECT DISTINCT uri FROM hits WHERE uri NOT IN (SELECT uri FROM hit_uris);
+
+DROP INDEX IF EXISTS hits_uri_timestamp_idx;
+DROP INDEX IF EXISTS hits_timestamp_uri_idx;
+
+ALTER TABLE hits ADD COLUMN app_id INTEGER;
+ALTER TABLE hits ADD COLUMN uri_id BIGINT;
+ALTER TABLE hits ADD COLUMN ip_bytes VARBINARY(256);
+
+UPDATE hits
+SET app_id = (SELECT a.id FROM hit_apps a WHERE a.name = hits.app),
+    uri_id = (SELECT u.id FROM hit_uris u WHERE u.uri = hits.uri),
+    ip_bytes = X'00' || STRINGTOUTF8(ip);
+
+ALTER TABLE hits DROP COLUMN app;
+ALTER TABLE hits DROP COLUMN uri;
+ALTER TABLE hits DROP COLUMN ip;
+ALTER TABLE hits ALTER COLUMN ip_bytes RENAME TO ip;
+ALTER TABLE hits ALTER COLUMN app_id SET NOT NULL;
+ALTER TABLE hits ALTER COLUMN uri_id SET NOT NULL;
+ALTER TABLE hits ALTER COLUMN ip SET NOT NULL;
+
+CREATE INDEX hits_uri_timestamp_idx ON hits (uri_id, timestamp, app_id, ip);
+CREATE INDEX hits_timestamp_uri_idx ON hits (timestamp, uri_id, app_id, ip);
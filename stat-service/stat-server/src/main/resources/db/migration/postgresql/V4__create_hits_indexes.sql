@@ -0,0 +1,5 @@
+-- Запросы со списком uri: поиск по uri, затем диапазон по времени без обращения к таблице
+CREATE INDEX IF NOT EXISTS hits_uri_timestamp_idx ON hits (uri, timestamp) INCLUDE (app, ip);
+
+-- Запросы без списка uri: диапазон по времени
+CREATE INDEX IF NOT EXISTS hits_timestamp_uri_idx ON hits (timestamp, uri) INCLUDE (app, ip);
@@ -0,0 +1,45 @@
+-- Секционирование hits по месяцам. Существующие строки переносятся в секции,
+-- созданные под их диапазон; дальнейшие секции создаёт HitPartitionManager.
+ALTER TABLE hits RENAME TO hits_legacy;
+ALTER TABLE hits_legacy RENAME CONSTRAINT hits_pkey TO hits_legacy_pkey;
+ALTER SEQUENCE hits_id_seq RENAME TO hits_legacy_id_seq;
+DROP INDEX IF EXISTS hits_uri_timestamp_idx;
+DROP INDEX IF EXISTS hits_timestamp_uri_idx;
+
+CREATE TABLE hits (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+  app VARCHAR(100) NOT NULL,
+  uri VARCHAR(300) NOT NULL,
+  ip VARCHAR(255) NOT NULL,
+  timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE hits_default PARTITION OF hits DEFAULT;
+
+CREATE INDEX hits_uri_timestamp_idx ON hits (uri, timestamp) INCLUDE (app, ip);
+CREATE INDEX hits_timestamp_uri_idx ON hits (timestamp, uri) INCLUDE (app, ip);
+
+DO $$
+DECLARE
+    month_start TIMESTAMP;
+    last_month TIMESTAMP;
+BEGIN
+    SELECT DATE_TRUNC('month', MIN(timestamp)), DATE_TRUNC('month', MAX(timestamp))
+    INTO month_start, last_month
+    FROM hits_legacy;
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF hits FOR VALUES FROM (%L) TO (%L)',
+                       'hits_' || to_char(month_start, '"y"YYYY"m"MM'),
+                       month_start, month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO hits (id, app, uri, ip, timestamp)
+SELECT id, app, uri, ip, timestamp
+FROM hits_legacy;
+
+SELECT setval(pg_get_serial_sequence('hits', 'id'), COALESCE(MAX(id), 0) + 1, false) FROM hits;
+
+DROP TABLE hits_legacy;
@@ -0,0 +1,45 @@
+-- app и uri заменяются ссылками на словари, ip хранится в двоичном виде:
+-- 0x04 + 4 байта для IPv4, 0x06 + 16 байт для IPv6, 0x00 + UTF-8 для прочих строк (см. IpAddressCodec)
+CREATE FUNCTION pg_temp.encode_ip(ip TEXT) RETURNS BYTEA AS $$
+DECLARE
+    address INET;
+BEGIN
+    IF ip ~ '^(25[0-5]|2[0-4][0-9]|1[0-9]{2}|[1-9]?[0-9])(\.(25[0-5]|2[0-4][0-9]|1[0-9]{2}|[1-9]?[0-9])){3}$' THEN
+        RETURN '\x04'::BYTEA || substring(inet_send(ip::INET) FROM 5);
+    END IF;
+    IF position(':' IN ip) > 0 AND ip ~ '^[0-9A-Fa-f:.]+$' THEN
+        BEGIN
+            address := ip::INET;
+            IF masklen(address) = 128 THEN
+                IF address << '::ffff:0:0/96'::INET THEN
+                    RETURN '\x04'::BYTEA || substring(inet_send(address) FROM 17);
+                END IF;
+                RETURN '\x06'::BYTEA || substring(inet_send(address) FROM 5);
+            END IF;
+        EXCEPTION WHEN OTHERS THEN
+            NULL;
+        END;
+    END IF;
+    RETURN '\x00'::BYTEA || convert_to(ip, 'UTF8');
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+INSERT INTO hit_apps (name) SELECT DISTINCT app FROM hits ON CONFLICT (name) DO NOTHING;
+INSERT INTO hit_uris (uri) SELECT DISTINCT uri FROM hits ON CONFLICT (uri) DO NOTHING;
+
+DROP INDEX IF EXISTS hits_uri_timestamp_idx;
+DROP INDEX IF EXISTS hits_timestamp_uri_idx;
+
+ALTER TABLE hits ADD COLUMN app_id INTEGER, ADD COLUMN uri_id BIGINT, ADD COLUMN ip_bytes BYTEA;
+
+UPDATE hits h
+SET app_id = a.id, uri_id = u.id, ip_bytes = pg_temp.encode_ip(h.ip)
+FROM hit_apps a, hit_uris u
+WHERE a.name = h.app AND u.uri = h.uri;
+
+ALTER TABLE hits DROP COLUMN app, DROP COLUMN uri, DROP COLUMN ip;
+ALTER TABLE hits RENAME COLUMN ip_bytes TO ip;
+ALTER TABLE hits ALTER COLUMN app_id SET NOT NULL, ALTER COLUMN uri_id SET NOT NULL, ALTER COLUMN ip SET NOT NULL;
+
+CREATE INDEX hits_uri_timestamp_idx ON hits (uri_id, timestamp) INCLUDE (app_id, ip);
+CREATE INDEX hits_timestamp_uri_idx ON hits (timestamp, uri_id) INCLUDE (app_id, ip);
@@ -1,8 +1,11 @@
 package teamfive.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import dto.InputHitDto;
 import dto.OutHitDto;
+import dto.StatDto;
+import dto.StatQueryDto;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -15,6 +18,8 @@ import teamfive.storage.StatRepository;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -86,6 +91,79 @@ class StatControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].hits").isNumber());
     }
 
+    @Test
+    void createHits_ShouldSaveBatch() throws Exception {
+        List<InputHitDto> hitDtos = List.of(
+                createHitDto("/events/10", "192.168.1.1"),
+                createHitDto("/events/10", "192.168.1.2"),
+                createHitDto("/events/11", "192.168.1.1"));
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hitDtos)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(3));
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        String start = LocalDateTime.now().minusDays(1).format(formatter);
+        String end = LocalDateTime.now().format(formatter);
+
+        mockMvc.perform(get("/stats")
+                        .param("start", start)
+                        .param("end", end)
+                        .param("uris", "/events/10")
+                        .param("unique", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].uri").value("/events/10"))
+                .andExpect(jsonPath("$[0].hits").value(2));
+    }
+
+    @Test
+    void createHits_WithCbor_ShouldAcceptAndReturnCbor() throws Exception {
+        CBORMapper cborMapper = CBORMapper.builder().findAndAddModules().build();
+        List<InputHitDto> hitDtos = List.of(
+                createHitDto("/events/13", "192.168.1.1"),
+                createHitDto("/events/13", "192.168.1.2"));
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(cborMapper.writeValueAsBytes(hitDtos)))
+                .andExpect(status().isCreated());
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        MvcResult result = mockMvc.perform(get("/stats")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .param("start", LocalDateTime.now().minusDays(1).format(formatter))
+                        .param("end", LocalDateTime.now().format(formatter))
+                        .param("uris", "/events/13"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        StatDto[] stats = cborMapper.readValue(result.getResponse().getContentAsByteArray(), StatDto[].class);
+        assertThat(stats).hasSize(1);
+        assertThat(stats[0].getHits()).isEqualTo(2L);
+    }
+
+    @Test
+    void createHits_WithInvalidHit_ShouldReturnBadRequest() throws Exception {
+        InputHitDto invalidDto = createHitDto("/events/12", null);
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(createHitDto("/events/12", "10.0.0.1"),
+                                invalidDto))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createHits_WithEmptyBatch_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getStats_WithInvalidDateRange_ShouldReturnBadRequest() throws Exception {
         String start = LocalDateTime.now().toString().replace("T", " ");
@@ -98,4 +176,237 @@ class StatControllerIntegrationTest {
                         .param("unique", "false"))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStats_WithNdjsonAccept_ShouldStreamOneLinePerRow() throws Exception {
+        List<InputHitDto> hitDtos = List.of(
+                createHitDto("/events/20", "192.168.1.1"),
+                createHitDto("/events/20", "192.168.1.1"),
+                createHitDto("/events/20", "192.168.1.2"),
+                createHitDto("/events/21", "192.168.1.1"));
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hitDtos)))
+                .andExpect(status().isCreated());
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        String start = LocalDateTime.now().minusDays(1).format(formatter);
+        String end = LocalDateTime.now().format(formatter);
+
+        for (String unique : List.of("false", "true")) {
+            MvcResult result = mockMvc.perform(get("/stats")
+                            .accept(MediaType.APPLICATION_NDJSON)
+                            .param("start", start)
+                            .param("end", end)
+                            .param("uris", "/events/20", "/events/21")
+                            .param("unique", unique))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            String body = mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                    .andReturn().getResponse().getContentAsString();
+
+            List<StatDto> stats = body.lines()
+                    .map(line -> readStatDto(line))
+                    .toList();
+            assertThat(stats).extracting(StatDto::getUri).containsExactly("/events/20", "/events/21");
+            assertThat(stats.get(0).getHits()).isEqualTo(unique.equals("true") ? 2L : 3L);
+        }
+    }
+
+    @Test
+    void getStats_WithLimit_ShouldReturnTopRows() throws Exception {
+        List<InputHitDto> hitDtos = List.of(
+                createHitDto("/events/30", "192.168.1.1"),
+                createHitDto("/events/30", "192.168.1.2"),
+                createHitDto("/events/31", "192.168.1.1"));
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hitDtos)))
+                .andExpect(status().isCreated());
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        String start = LocalDateTime.now().minusDays(1).format(formatter);
+        String end = LocalDateTime.now().format(formatter);
+
+        for (String unique : List.of("false", "true")) {
+            mockMvc.perform(get("/stats")
+                            .param("start", start)
+                            .param("end", end)
+                            .param("uris", "/events/30", "/events/31")
+                            .param("unique", unique)
+                            .param("limit", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].uri").value("/events/30"));
+        }
+
+        mockMvc.perform(get("/stats")
+                        .param("start", start)
+                        .param("end", end)
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTop_ShouldReturnMostViewedUris() throws Exception {
+        List<InputHitDto> hitDtos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            hitDtos.add(createHitDto("/events/40", "10.0.0." + i));
+        }
+        hitDtos.add(createHitDto("/events/41", "10.0.0.1"));
+        hitDtos.forEach(hitDto -> hitDto.setApp("top-controller-test"));
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hitDtos)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/stats/top")
+                        .param("app", "top-controller-test")
+                        .param("minutes", "30")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].uri").value("/events/40"))
+                .andExpect(jsonPath("$[0].hits").value(3));
+
+        mockMvc.perform(get("/stats/top")
+                        .param("app", "top-controller-test")
+                        .param("minutes", String.valueOf(24 * 60 + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private StatDto readStatDto(String line) {
+        try {
+            return objectMapper.readValue(line, StatDto.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void queryStats_ShouldReturnResultPerRangeInRequestOrder() throws Exception {
+        LocalDateTime day = LocalDateTime.of(2022, 6, 1, 0, 0);
+        List<InputHitDto> hitDtos = List.of(
+                createHitDto("/events/60", "10.1.0.1"),
+                createHitDto("/events/60", "10.1.0.2"),
+                createHitDto("/events/60", "10.1.0.1"),
+                createHitDto("/events/61", "10.1.0.1"),
+                createHitDto("/events/60", "10.1.0.3"));
+        for (int i = 0; i < hitDtos.size(); i++) {
+            hitDtos.get(i).setApp("query-controller-test");
+            hitDtos.get(i).setTimestamp(i < 4 ? day.plusHours(i + 1) : day.plusDays(1).plusHours(1));
+        }
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hitDtos)))
+                .andExpect(status().isCreated());
+
+        List<StatQueryDto> queries = List.of(
+                new StatQueryDto(day, day.plusDays(1).minusSeconds(1), null, false),
+                new StatQueryDto(day.plusDays(1), day.plusDays(2).minusSeconds(1), List.of("/events/60"), false),
+                new StatQueryDto(day, day.plusDays(2), List.of("/events/60"), true),
+                new StatQueryDto(day, day.plusDays(1), List.of(), false));
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(queries)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].length()").value(2))
+                .andExpect(jsonPath("$[0][0].uri").value("/events/60"))
+                .andExpect(jsonPath("$[0][0].hits").value(3))
+                .andExpect(jsonPath("$[0][1].uri").value("/events/61"))
+                .andExpect(jsonPath("$[0][1].hits").value(1))
+                .andExpect(jsonPath("$[1].length()").value(1))
+                .andExpect(jsonPath("$[1][0].hits").value(1))
+                .andExpect(jsonPath("$[2].length()").value(1))
+                .andExpect(jsonPath("$[2][0].hits").value(3))
+                .andExpect(jsonPath("$[3].length()").value(0));
+    }
+
+    @Test
+    void queryStats_WithInvalidDateRange_ShouldReturnBadRequest() throws Exception {
+        LocalDateTime day = LocalDateTime.of(2022, 6, 1, 0, 0);
+        List<StatQueryDto> queries = List.of(new StatQueryDto(day.plusDays(1), day, null, false));
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(queries)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getSeries_ShouldCombineRollupsWithPartialEdgeBuckets() throws Exception {
+        LocalDateTime day = LocalDateTime.of(2022, 7, 1, 0, 0);
+        List<InputHitDto> hitDtos = new ArrayList<>();
+        hitDtos.add(createSeriesHitDto(day.plusHours(10).plusMinutes(15), "10.2.0.1"));
+        hitDtos.add(createSeriesHitDto(day.plusHours(10).plusMinutes(40), "10.2.0.2"));
+        hitDtos.add(createSeriesHitDto(day.plusHours(11).plusMinutes(5), "10.2.0.1"));
+        hitDtos.add(createSeriesHitDto(day.plusHours(12).plusMinutes(20), "10.2.0.2"));
+        hitDtos.add(createSeriesHitDto(day.plusHours(12).plusMinutes(50), "10.2.0.2"));
+        hitDtos.add(createSeriesHitDto(day.plusHours(13).plusMinutes(30), "10.2.0.1"));
+        hitDtos.add(createSeriesHitDto(day.plusDays(1).plusHours(9), "10.2.0.3"));
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hitDtos)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/stats/series")
+                        .param("start", "2022-07-01 10:30:00")
+                        .param("end", "2022-07-01 13:10:00")
+                        .param("uris", "/events/70"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].bucket").value("2022-07-01 10:00:00"))
+                .andExpect(jsonPath("$[0].hits").value(1))
+                .andExpect(jsonPath("$[1].bucket").value("2022-07-01 11:00:00"))
+                .andExpect(jsonPath("$[1].hits").value(1))
+                .andExpect(jsonPath("$[2].bucket").value("2022-07-01 12:00:00"))
+                .andExpect(jsonPath("$[2].hits").value(2));
+
+        mockMvc.perform(get("/stats/series")
+                        .param("start", "2022-07-01 10:30:00")
+                        .param("end", "2022-07-01 13:10:00")
+                        .param("uris", "/events/70")
+                        .param("unique", "true")
+                        .param("approximate", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[2].bucket").value("2022-07-01 12:00:00"))
+                .andExpect(jsonPath("$[2].hits").value(1));
+
+        mockMvc.perform(get("/stats/series")
+                        .param("start", "2022-07-01 10:30:00")
+                        .param("end", "2022-07-03 00:00:00")
+                        .param("uris", "/events/70")
+                        .param("granularity", "day"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].hits").value(5))
+                .andExpect(jsonPath("$[1].bucket").value("2022-07-02 00:00:00"))
+                .andExpect(jsonPath("$[1].hits").value(1));
+
+        mockMvc.perform(get("/stats/series")
+                        .param("start", "2000-01-01 00:00:00")
+                        .param("end", "2022-07-03 00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private InputHitDto createSeriesHitDto(LocalDateTime timestamp, String ip) {
+        InputHitDto hitDto = createHitDto("/events/70", ip);
+        hitDto.setApp("series-controller-test");
+        hitDto.setTimestamp(timestamp);
+        return hitDto;
+    }
+
+    private InputHitDto createHitDto(String uri, String ip) {
+        InputHitDto hitDto = new InputHitDto();
+        hitDto.setApp("ewm-main-service");
+        hitDto.setUri(uri);
+        hitDto.setIp(ip);
+        hitDto.setTimestamp(LocalDateTime.now().minusMinutes(5));
+        return hitDto;
+    }
+}
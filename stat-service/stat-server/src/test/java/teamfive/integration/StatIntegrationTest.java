@@ -1,17 +1,21 @@
 package teamfive.integration;
 
 import dto.InputHitDto;
+import dto.StatDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.transaction.annotation.Transactional;
+import teamfive.service.StatService;
 import teamfive.storage.StatRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -28,6 +32,12 @@ class StatIntegrationTest {
     @Autowired
     private StatRepository statRepository;
 
+    @Autowired
+    private StatService statService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private String baseUrl;
 
     @BeforeEach
@@ -104,6 +114,27 @@ class StatIntegrationTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void statService_WithUnknownUris_ShouldNotInsertIntoDictionary() {
+        createTestHits();
+        Long dictionarySize = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hit_uris", Long.class);
+
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now();
+        List<StatDto> unknownOnly = statService.getStats(start, end, List.of("/events/unknown-read-1"), true);
+        List<StatDto> mixed = statService.getStats(start, end, List.of("/events/1", "/events/unknown-read-2"), true);
+        List<StatDto> streamed = new ArrayList<>();
+        statService.streamStats(start, end, List.of("/events/2", "/events/unknown-read-3"), true, false, null,
+                streamed::add);
+
+        assertThat(unknownOnly).isEmpty();
+        assertThat(mixed).extracting(StatDto::getUri).containsExactly("/events/1");
+        assertThat(streamed).extracting(StatDto::getUri).containsExactly("/events/2");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hit_uris", Long.class)).isEqualTo(dictionarySize);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hit_uris WHERE uri LIKE '/events/unknown-read-%'",
+                Long.class)).isZero();
+    }
+
     @Test
     void integrationTest_OrderByHitsDesc() {
         LocalDateTime now = LocalDateTime.now();
@@ -0,0 +1,113 @@
+package teamfive.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.InputHitDto;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import teamfive.storage.StatRepository;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Все запросы задерживаются фильтром, пока не соберутся одновременно. Это возможно, только если
+ * обработчиков больше, чем потоков в пуле Tomcat по умолчанию (200), а пул соединений Hikari
+ * при этом остаётся маленьким.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "spring.datasource.hikari.maximum-pool-size=10",
+        "logging.level.teamfive=INFO",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class VirtualThreadLoadTest {
+
+    private static final int CONCURRENT_REQUESTS = 300;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CountDownLatch inFlight;
+
+    @Autowired
+    private StatRepository statRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void createHit_ShouldServeMoreConcurrentRequestsThanPlatformThreadPool() throws Exception {
+        InputHitDto hitDto = new InputHitDto();
+        hitDto.setApp("ewm-main-service");
+        hitDto.setUri("/events/1");
+        hitDto.setIp("192.168.1.1");
+        hitDto.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        String body = objectMapper.writeValueAsString(hitDto);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hit"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        try (HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build()) {
+            List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+            }
+
+            assertThat(inFlight.await(30, TimeUnit.SECONDS)).isTrue();
+            for (CompletableFuture<HttpResponse<Void>> response : responses) {
+                assertThat(response.get(30, TimeUnit.SECONDS).statusCode()).isEqualTo(201);
+            }
+        }
+        assertThat(statRepository.count()).isEqualTo(CONCURRENT_REQUESTS);
+    }
+
+    @TestConfiguration
+    static class BarrierConfig {
+
+        @Bean
+        CountDownLatch inFlight() {
+            return new CountDownLatch(CONCURRENT_REQUESTS);
+        }
+
+        @Bean
+        Filter barrierFilter(CountDownLatch inFlight) {
+            return (request, response, chain) -> {
+                inFlight.countDown();
+                try {
+                    inFlight.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                chain.doFilter(request, response);
+            };
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package teamfive.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import teamfive.config.PartitionProperties;
+import teamfive.model.BucketKey;
+import teamfive.model.Hit;
+import teamfive.model.RollupGranularity;
+import teamfive.sketch.HyperLogLog;
+import teamfive.storage.HitBatchRepository;
+import teamfive.storage.HitPartitionRepository;
+import teamfive.storage.HitRollupRepository;
+import teamfive.storage.HitSketchRepository;
+import teamfive.storage.HitTopRepository;
+
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class HitPartitionManagerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 15, 12, 0);
+
+    @Autowired
+    private HitPartitionRepository partitionRepository;
+
+    @Autowired
+    private HitBatchRepository hitBatchRepository;
+
+    @Autowired
+    private StatsCache statsCache;
+
+    @Autowired
+    private HitRollupRepository rollupRepository;
+
+    @Autowired
+    private HitSketchRepository sketchRepository;
+
+    @Autowired
+    private HitTopRepository topRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private PartitionProperties properties;
+    private HitPartitionManager partitionManager;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PartitionProperties();
+        properties.setRetention(Period.ofMonths(12));
+        partitionManager = new HitPartitionManager(partitionRepository, properties, statsCache, rollupRepository,
+                sketchRepository, topRepository);
+    }
+
+    @Test
+    void ensurePartitions_ShouldCreateMonthsAhead() {
+        partitionManager.ensurePartitions(YearMonth.from(NOW));
+
+        if (partitionRepository.isPartitioned()) {
+            assertThat(partitionRepository.findMonthPartitions())
+                    .contains(YearMonth.of(2024, 6), YearMonth.of(2024, 9));
+        }
+    }
+
+    @Test
+    void applyRetention_ShouldRemoveOnlyExpiredHits() {
+        partitionManager.ensurePartitions(YearMonth.of(2023, 1));
+        partitionManager.ensurePartitions(YearMonth.from(NOW));
+        hitBatchRepository.saveAll(List.of(
+                createHit(LocalDateTime.of(2023, 2, 10, 8, 0)),
+                createHit(LocalDateTime.of(2023, 3, 31, 23, 59)),
+                createHit(LocalDateTime.of(2024, 6, 1, 10, 0))));
+
+        partitionManager.applyRetention(NOW);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits h JOIN hit_uris u ON u.id = h.uri_id WHERE u.uri = '/events/retention'",
+                Long.class)).isEqualTo(1L);
+        if (partitionRepository.isPartitioned()) {
+            assertThat(partitionRepository.findMonthPartitions())
+                    .doesNotContain(YearMonth.of(2023, 2), YearMonth.of(2023, 3))
+                    .contains(YearMonth.of(2024, 6));
+        }
+    }
+
+    @Test
+    void applyRetention_ShouldRemoveDerivedDataOfExpiredPeriods() {
+        LocalDateTime cutoff = NOW.minusMonths(12);
+        List<LocalDateTime> expired = List.of(cutoff.minusHours(1), LocalDateTime.of(2023, 2, 10, 8, 0));
+        List<LocalDateTime> kept = List.of(cutoff, NOW);
+        Map<BucketKey, Long> rollups = new HashMap<>();
+        Map<BucketKey, HyperLogLog> sketches = new HashMap<>();
+        for (LocalDateTime timestamp : Stream.concat(expired.stream(), kept.stream()).toList()) {
+            BucketKey key = new BucketKey(RollupGranularity.HOUR, "ewm-main-service", "/events/retention", timestamp);
+            rollups.put(key, 1L);
+            HyperLogLog sketch = new HyperLogLog();
+            sketch.add("192.168.1.1");
+            sketches.put(key, sketch);
+            topRepository.save(ChronoUnit.HOURS, "ewm-main-service", timestamp, new byte[]{1});
+        }
+        rollupRepository.merge(rollups);
+        sketchRepository.merge(sketches);
+
+        partitionManager.applyRetention(NOW);
+
+        if (!partitionRepository.isPartitioned()) {
+            for (String table : List.of("hit_rollups", "hit_sketches", "hit_top_checkpoints")) {
+                assertThat(jdbcTemplate.queryForList("SELECT bucket_start FROM " + table
+                        + " WHERE granularity = ? AND app = 'ewm-main-service'", LocalDateTime.class,
+                        table.equals("hit_top_checkpoints") ? "HOURS" : "HOUR"))
+                        .as(table)
+                        .containsExactlyInAnyOrderElementsOf(kept);
+            }
+        }
+    }
+
+    @Test
+    void ensurePartitions_WithHitsInDefaultPartition_ShouldMoveThemToNewPartition() {
+        partitionManager.ensurePartitions(YearMonth.from(NOW));
+        LocalDateTime beyondHorizon = LocalDateTime.of(2031, 1, 5, 10, 0);
+        hitBatchRepository.saveAll(List.of(createHit(beyondHorizon), createHit(beyondHorizon.plusMonths(1))));
+
+        partitionManager.ensurePartitions(YearMonth.from(beyondHorizon));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits WHERE timestamp >= ?",
+                Long.class, beyondHorizon)).isEqualTo(2L);
+        if (partitionRepository.isPartitioned()) {
+            assertThat(partitionRepository.findMonthPartitions())
+                    .contains(YearMonth.of(2031, 1), YearMonth.of(2031, 4));
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_y2031m01", Long.class))
+                    .isEqualTo(1L);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_y2031m02", Long.class))
+                    .isEqualTo(1L);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_default WHERE timestamp >= ?",
+                    Long.class, beyondHorizon)).isZero();
+        }
+    }
+
+    private Hit createHit(LocalDateTime timestamp) {
+        Hit hit = new Hit();
+        hit.setApp("ewm-main-service");
+        hit.setUri("/events/retention");
+        hit.setIp("192.168.1.1");
+        hit.setTimestamp(timestamp);
+        return hit;
+    }
+}
@@ -0,0 +1,156 @@
+package teamfive.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import teamfive.model.Hit;
+import teamfive.model.RollupGranularity;
+import teamfive.model.RollupRange;
+import teamfive.model.SeriesRange;
+import teamfive.model.StatHit;
+import teamfive.model.StatSeriesHit;
+import teamfive.storage.HitBatchRepository;
+import teamfive.storage.HitRollupRepository;
+import teamfive.storage.HitSeriesRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class HitRollupServiceTest {
+
+    private static final String APP = "rollup-service-test";
+    private static final LocalDateTime BASE = LocalDateTime.of(2023, 7, 1, 0, 0);
+    private static final List<String> URIS = List.of("/rollup-service-test/1", "/rollup-service-test/2");
+
+    @Autowired
+    private HitWriter hitWriter;
+
+    @Autowired
+    private HitRollupService rollupService;
+
+    @Autowired
+    private HitRollupRepository rollupRepository;
+
+    @Autowired
+    private HitSeriesRepository seriesRepository;
+
+    @Autowired
+    private HitBatchRepository hitBatchRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void onHitsSaved_ShouldUpdateRollupsInHitTransaction() {
+        List<Hit> hits = new ArrayList<>();
+        addHits(hits, URIS.get(0), 3, BASE.plusHours(1).plusMinutes(10));
+        addHits(hits, URIS.get(1), 2, BASE.plusHours(2).plusMinutes(20));
+        hitWriter.saveAll(hits);
+
+        RollupRange range = RollupRange.of(BASE, BASE.plusHours(5)).orElseThrow();
+        SeriesRange seriesRange = SeriesRange.of(RollupGranularity.HOUR, BASE, BASE.plusHours(5));
+        List<StatHit> expected = List.of(new StatHit(APP, URIS.get(0), 3L), new StatHit(APP, URIS.get(1), 2L));
+
+        assertThat(rollupRepository.getNonUniqueStat(range, URIS, null)).isEqualTo(expected);
+        assertThat(rollupService.getNonUniqueStat(range, URIS, 1)).containsExactly(expected.getFirst());
+        assertThat(rollupService.getNonUniqueSeries(seriesRange, URIS)).containsExactly(
+                new StatSeriesHit(APP, URIS.get(0), BASE.plusHours(1), 3L),
+                new StatSeriesHit(APP, URIS.get(1), BASE.plusHours(2), 2L));
+    }
+
+    @Test
+    void onHitsSaved_WhenHitTransactionRollsBack_ShouldLeaveRollupsUnchanged() {
+        String uri = "/rollup-service-test/rollback";
+        LocalDateTime timestamp = BASE.plusDays(3).plusHours(4);
+        RollupRange range = RollupRange.of(BASE.plusDays(3), BASE.plusDays(4)).orElseThrow();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Hit> hits = new ArrayList<>();
+            addHits(hits, uri, 2, timestamp);
+            hitWriter.saveAll(hits);
+            status.setRollbackOnly();
+        });
+
+        assertThat(rollupRepository.getNonUniqueStat(range, List.of(uri), null)).isEmpty();
+    }
+
+    @Test
+    void onHitsSaved_FromSeveralThreads_ShouldCountEachHitOnce() throws Exception {
+        String uri = "/rollup-service-test/concurrent";
+        LocalDateTime timestamp = BASE.plusDays(1).plusHours(3);
+        RollupRange range = RollupRange.of(BASE.plusDays(1), BASE.plusDays(2)).orElseThrow();
+        int threads = 4;
+        int rounds = 20;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < rounds; i++) {
+                        List<Hit> hits = new ArrayList<>();
+                        addHits(hits, uri, 1, timestamp);
+                        hitWriter.saveAll(hits);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(rollupRepository.getNonUniqueStat(range, List.of(uri), null))
+                .containsExactly(new StatHit(APP, uri, (long) threads * rounds));
+    }
+
+    @Test
+    void init_ShouldBackfillHitsSavedWhileRollupsWereDisabled() {
+        String uri = "/rollup-service-test/disabled";
+        LocalDateTime timestamp = BASE.plusDays(5).plusHours(6);
+        RollupRange range = RollupRange.of(BASE.plusDays(5), BASE.plusDays(6)).orElseThrow();
+        List<Hit> saved = new ArrayList<>();
+        addHits(saved, uri, 2, timestamp);
+        hitWriter.saveAll(saved);
+
+        new HitRollupService(rollupRepository, seriesRepository, transactionTemplate, false).init();
+        assertThat(rollupRepository.findWatermark()).isEqualTo(rollupRepository.findLastHitId());
+        List<Hit> hits = new ArrayList<>();
+        addHits(hits, uri, 3, timestamp);
+        // Хиты без события, как если бы они были записаны при выключенных агрегатах.
+        hitBatchRepository.saveAll(hits);
+
+        rollupService.init();
+        rollupService.init();
+
+        assertThat(rollupRepository.getNonUniqueStat(range, List.of(uri), null))
+                .containsExactly(new StatHit(APP, uri, 5L));
+        assertThat(rollupRepository.findWatermark()).isNull();
+    }
+
+    private void addHits(List<Hit> hits, String uri, int count, LocalDateTime timestamp) {
+        for (int i = 0; i < count; i++) {
+            Hit hit = new Hit();
+            hit.setApp(APP);
+            hit.setUri(uri);
+            hit.setIp("192.168.1." + i);
+            hit.setTimestamp(timestamp);
+            hits.add(hit);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package teamfive.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import teamfive.model.Hit;
+import teamfive.model.RollupRange;
+import teamfive.model.StatHit;
+import teamfive.sketch.HyperLogLog;
+import teamfive.storage.HitBatchRepository;
+import teamfive.storage.StatRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class HitSketchServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private HitWriter hitWriter;
+
+    @Autowired
+    private HitSketchService sketchService;
+
+    @Autowired
+    private StatRepository statRepository;
+
+    @Autowired
+    private HitBatchRepository hitBatchRepository;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < 6_000; i++) {
+            LocalDateTime timestamp = BASE.plusSeconds(random.nextInt(4 * 24 * 60 * 60));
+            hits.add(createHit("/events/" + random.nextInt(3), "10.0." + random.nextInt(8) + "." + random.nextInt(250),
+                    timestamp));
+        }
+        // Скетчи обновляются после коммита, которого в транзакционном тесте нет.
+        hitWriter.saveAll(hits.subList(0, 4_000));
+        sketchService.onHitsSaved(new HitsSavedEvent(hits.subList(0, 4_000)));
+        sketchService.flush();
+        hitWriter.saveAll(hits.subList(4_000, hits.size()));
+        sketchService.onHitsSaved(new HitsSavedEvent(hits.subList(4_000, hits.size())));
+    }
+
+    @Test
+    void getApproximateUniqueStat_ShouldMatchExactCountWithinErrorBound() {
+        assertCloseToExact(BASE.plusHours(5).plusMinutes(40), BASE.plusDays(3).plusHours(2).plusSeconds(9), null);
+        assertCloseToExact(BASE.plusMinutes(15), BASE.plusHours(20), List.of("/events/1", "/events/2"));
+    }
+
+    @Test
+    void getApproximateUniqueStat_WithEmptyUris_ShouldReturnEmptyList() {
+        RollupRange range = RollupRange.of(BASE, BASE.plusDays(1)).orElseThrow();
+
+        assertThat(sketchService.getApproximateUniqueStat(range, List.of())).isEmpty();
+    }
+
+    @Test
+    void init_ShouldAddHitsSavedAfterWatermark() {
+        LocalDateTime day = BASE.plusDays(10);
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            hits.add(createHit("/events/unflushed", "10.1." + i / 250 + "." + i % 250, day.plusMinutes(i)));
+        }
+        // Хиты без события, как если бы сервер остановился до сброса их скетчей.
+        hitBatchRepository.saveAll(hits);
+
+        sketchService.init();
+
+        assertCloseToExact(day, day.plusDays(1), List.of("/events/unflushed"));
+    }
+
+    private void assertCloseToExact(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        RollupRange range = sketchService.findRange(start, end).orElseThrow();
+        double tolerance = 3 * HyperLogLog.standardError(HyperLogLog.DEFAULT_PRECISION);
+
+        Map<String, StatHit> expected = statRepository.getUniqueStat(start, end, uris).stream()
+                .collect(Collectors.toMap(StatHit::getUri, Function.identity()));
+        List<StatHit> actual = sketchService.getApproximateUniqueStat(range, uris);
+
+        assertThat(actual).hasSize(expected.size());
+        assertThat(actual).isSortedAccordingTo((a, b) -> Long.compare(b.getHits(), a.getHits()));
+        for (StatHit statHit : actual) {
+            long exact = expected.get(statHit.getUri()).getHits();
+            assertThat((double) statHit.getHits()).isCloseTo(exact, within(exact * tolerance));
+        }
+    }
+
+    private Hit createHit(String uri, String ip, LocalDateTime timestamp) {
+        Hit hit = new Hit();
+        hit.setApp("ewm-main-service");
+        hit.setUri(uri);
+        hit.setIp(ip);
+        hit.setTimestamp(timestamp);
+        return hit;
+    }
+}
@@ -0,0 +1,254 @@
+package teamfive.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import teamfive.config.OverflowPolicy;
+import teamfive.config.WriteBehindProperties;
+import teamfive.model.Hit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitWriteBehindBufferTest {
+
+    @Mock
+    private HitWriter hitWriter;
+
+    private final CountDownLatch writerLatch = new CountDownLatch(1);
+    private final CountDownLatch writerStarted = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private WriteBehindProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new WriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setCapacity(2);
+        properties.setBatchSize(1);
+        properties.setFlushInterval(Duration.ofMillis(50));
+        properties.setBlockTimeout(Duration.ofMillis(10));
+        properties.setRetryBackoff(Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        writerLatch.countDown();
+    }
+
+    @Test
+    void enqueue_WhenStopped_ShouldWriteSynchronously() {
+        HitWriteBehindBuffer buffer = createBuffer();
+
+        buffer.enqueue(createHit("/events/1"));
+
+        verify(hitWriter).saveAll(anyList());
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void enqueue_WithRejectPolicy_ShouldReturnServiceUnavailable() throws InterruptedException {
+        properties.setOverflowPolicy(OverflowPolicy.REJECT);
+        HitWriteBehindBuffer buffer = startPaused();
+
+        buffer.enqueueAll(List.of(createHit("/events/1"), createHit("/events/2")));
+
+        assertThatThrownBy(() -> buffer.enqueue(createHit("/events/3")))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(meterRegistry.counter("stat.hits.buffer.rejected").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void enqueueAll_WithRejectPolicy_ShouldNotAcceptPartOfBatch() throws InterruptedException {
+        properties.setOverflowPolicy(OverflowPolicy.REJECT);
+        HitWriteBehindBuffer buffer = startPaused();
+        buffer.enqueue(createHit("/events/1"));
+
+        assertThatThrownBy(() -> buffer.enqueueAll(List.of(createHit("/events/2"), createHit("/events/3"))))
+                .isInstanceOf(ResponseStatusException.class);
+
+        assertThat(buffer.size()).isEqualTo(1);
+        assertThat(meterRegistry.counter("stat.hits.buffer.rejected").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void enqueue_WithBlockPolicy_ShouldRejectAfterTimeout() throws InterruptedException {
+        properties.setOverflowPolicy(OverflowPolicy.BLOCK);
+        HitWriteBehindBuffer buffer = startPaused();
+
+        buffer.enqueueAll(List.of(createHit("/events/1"), createHit("/events/2")));
+
+        assertThatThrownBy(() -> buffer.enqueue(createHit("/events/3")))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(buffer.size()).isEqualTo(2);
+    }
+
+    @Test
+    void enqueueAll_WithBlockPolicy_ShouldNotAcceptPartOfBatch() throws InterruptedException {
+        properties.setOverflowPolicy(OverflowPolicy.BLOCK);
+        HitWriteBehindBuffer buffer = startPaused();
+        buffer.enqueue(createHit("/events/1"));
+
+        assertThatThrownBy(() -> buffer.enqueueAll(List.of(createHit("/events/2"), createHit("/events/3"))))
+                .isInstanceOf(ResponseStatusException.class);
+
+        assertThat(buffer.size()).isEqualTo(1);
+        assertThat(meterRegistry.counter("stat.hits.buffer.rejected").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void enqueueAll_WithBatchLargerThanBuffer_ShouldWriteSynchronously() {
+        properties.setOverflowPolicy(OverflowPolicy.REJECT);
+        HitWriteBehindBuffer buffer = createBuffer();
+        buffer.start();
+
+        buffer.enqueueAll(List.of(createHit("/events/1"), createHit("/events/2"), createHit("/events/3")));
+        buffer.stop();
+
+        verify(hitWriter).saveAll(argThat(batch -> batch.size() == 3));
+        assertThat(meterRegistry.counter("stat.hits.buffer.rejected").count()).isZero();
+    }
+
+    @Test
+    void enqueue_WithDropOldestPolicy_ShouldEvictOldestHit() throws InterruptedException {
+        properties.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        HitWriteBehindBuffer buffer = startPaused();
+
+        buffer.enqueueAll(List.of(createHit("/events/1"), createHit("/events/2"), createHit("/events/3")));
+
+        assertThat(buffer.size()).isEqualTo(2);
+        assertThat(meterRegistry.counter("stat.hits.buffer.dropped").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void stop_ShouldFlushQueuedHits() {
+        properties.setCapacity(100);
+        properties.setBatchSize(10);
+        HitWriteBehindBuffer buffer = createBuffer();
+        buffer.start();
+
+        for (int i = 0; i < 25; i++) {
+            buffer.enqueue(createHit("/events/" + i));
+        }
+        buffer.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Hit>> captor = ArgumentCaptor.forClass(List.class);
+        verify(hitWriter, atLeastOnce()).saveAll(captor.capture());
+        int written = captor.getAllValues().stream().mapToInt(List::size).sum();
+        assertThat(written).isEqualTo(25);
+        assertThat(captor.getAllValues()).allMatch(batch -> batch.size() <= 10);
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void stop_WhileProducersEnqueue_ShouldWriteEveryAcceptedHit() throws Exception {
+        properties.setCapacity(100);
+        properties.setBatchSize(10);
+        properties.setBlockTimeout(Duration.ofSeconds(5));
+        HitWriteBehindBuffer buffer = createBuffer();
+        buffer.start();
+        int producers = 4;
+        int hitsPerProducer = 200;
+        CountDownLatch started = new CountDownLatch(producers);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    for (int i = 0; i < hitsPerProducer; i++) {
+                        buffer.enqueue(createHit("/events/" + i));
+                    }
+                    return null;
+                }));
+            }
+            started.await();
+            buffer.stop();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Hit>> captor = ArgumentCaptor.forClass(List.class);
+        verify(hitWriter, atLeastOnce()).saveAll(captor.capture());
+        int written = captor.getAllValues().stream().mapToInt(List::size).sum();
+        assertThat(written).isEqualTo(producers * hitsPerProducer);
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void constructor_WithBatchSizeNotBelowCapacity_ShouldFail() {
+        properties.setBatchSize(2);
+
+        assertThatThrownBy(this::createBuffer).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void enqueue_WhenStoppedAndDatabaseFails_ShouldRetryAndThrow() {
+        properties.setMaxRetries(2);
+        when(hitWriter.saveAll(anyList())).thenThrow(new IllegalStateException("db down"));
+        HitWriteBehindBuffer buffer = createBuffer();
+
+        assertThatThrownBy(() -> buffer.enqueue(createHit("/events/1")))
+                .isInstanceOf(IllegalStateException.class);
+
+        verify(hitWriter, times(3)).saveAll(anyList());
+        assertThat(meterRegistry.counter("stat.hits.buffer.failed").count()).isEqualTo(1.0);
+    }
+
+    private HitWriteBehindBuffer createBuffer() {
+        return new HitWriteBehindBuffer(hitWriter, properties, meterRegistry);
+    }
+
+    private HitWriteBehindBuffer startPaused() throws InterruptedException {
+        properties.setBatchSize(1);
+        when(hitWriter.saveAll(anyList())).thenAnswer(invocation -> {
+            writerStarted.countDown();
+            writerLatch.await();
+            return 1;
+        });
+        HitWriteBehindBuffer buffer = createBuffer();
+        buffer.start();
+        buffer.enqueue(createHit("/events/0"));
+        assertThat(writerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(buffer.size()).isZero();
+        return buffer;
+    }
+
+    private Hit createHit(String uri) {
+        Hit hit = new Hit();
+        hit.setApp("ewm-main-service");
+        hit.setUri(uri);
+        hit.setIp("192.168.1.1");
+        hit.setTimestamp(LocalDateTime.now());
+        return hit;
+    }
+}
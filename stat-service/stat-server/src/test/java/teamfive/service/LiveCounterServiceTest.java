@@ -0,0 +1,166 @@
+package teamfive.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import teamfive.config.LiveCounterProperties;
+import teamfive.model.Hit;
+import teamfive.model.StatHit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveCounterServiceTest {
+
+    private static final LocalDateTime STARTED = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private MutableClock clock;
+    private LiveCounterService liveCounterService;
+
+    @BeforeEach
+    void setUp() {
+        LiveCounterProperties properties = new LiveCounterProperties();
+        properties.setHorizon(Duration.ofMinutes(10));
+        properties.setMaxClockSkew(Duration.ofSeconds(30));
+        clock = new MutableClock(STARTED);
+        liveCounterService = new LiveCounterService(properties, clock);
+    }
+
+    @Test
+    void getNonUniqueStat_ShouldCountHitsInsideRange() {
+        clock.set(STARTED.plusMinutes(5));
+        save(createHit("/events/1", STARTED.plusMinutes(2)),
+                createHit("/events/1", STARTED.plusMinutes(3)),
+                createHit("/events/1", STARTED.plusMinutes(4)),
+                createHit("/events/2", STARTED.plusMinutes(4)),
+                createHit("/events/2", STARTED.plusMinutes(5).plusSeconds(10)));
+
+        LocalDateTime start = STARTED.plusMinutes(3);
+        LocalDateTime end = STARTED.plusMinutes(5);
+
+        assertThat(liveCounterService.covers(start, end)).isTrue();
+        assertThat(liveCounterService.getNonUniqueStat(start, end, null, null)).containsExactly(
+                new StatHit("ewm-main-service", "/events/1", 2L),
+                new StatHit("ewm-main-service", "/events/2", 1L));
+        assertThat(liveCounterService.getNonUniqueStat(start, end, List.of("/events/2"), null))
+                .containsExactly(new StatHit("ewm-main-service", "/events/2", 1L));
+        assertThat(liveCounterService.getNonUniqueStat(start, end, null, 1)).hasSize(1);
+        assertThat(liveCounterService.getNonUniqueStat(start, end, List.of(), null)).isEmpty();
+    }
+
+    @Test
+    void covers_ShouldRequireStartInsideHorizonAndAfterStartup() {
+        clock.set(STARTED.plusMinutes(15));
+
+        assertThat(liveCounterService.covers(STARTED.plusSeconds(10), STARTED.plusMinutes(15))).isFalse();
+        assertThat(liveCounterService.covers(STARTED.plusMinutes(4), STARTED.plusMinutes(15))).isFalse();
+        assertThat(liveCounterService.covers(STARTED.plusMinutes(6), STARTED.plusMinutes(15))).isTrue();
+    }
+
+    @Test
+    void getNonUniqueStat_ShouldDropBucketsOutsideHorizon() {
+        clock.set(STARTED.plusMinutes(2));
+        save(createHit("/events/1", STARTED.plusMinutes(2)));
+
+        clock.set(STARTED.plusMinutes(13));
+        save(createHit("/events/1", STARTED.plusMinutes(13)));
+
+        assertThat(liveCounterService.getNonUniqueStat(STARTED, STARTED.plusMinutes(13), null, null))
+                .containsExactly(new StatHit("ewm-main-service", "/events/1", 1L));
+    }
+
+    @Test
+    void covers_WithHitFromFarFuture_ShouldFallBackToDatabase() {
+        clock.set(STARTED.plusMinutes(5));
+        save(createHit("/events/1", STARTED.plusMinutes(8)));
+
+        assertThat(liveCounterService.covers(STARTED.plusMinutes(4), STARTED.plusMinutes(5))).isTrue();
+        assertThat(liveCounterService.covers(STARTED.plusMinutes(4), STARTED.plusMinutes(9))).isFalse();
+    }
+
+    @Test
+    void onHitsSaved_WithHitsBeyondHorizonInFuture_ShouldNotRememberThem() {
+        clock.set(STARTED.plusMinutes(5));
+        for (int i = 0; i < 1_000; i++) {
+            save(createHit("/events/1", STARTED.plusDays(1).plusSeconds(i)));
+        }
+        save(createHit("/events/1", STARTED.plusMinutes(8)));
+
+        assertThat(liveCounterService.rejectedSecondsCount()).isEqualTo(1);
+
+        clock.set(STARTED.plusMinutes(19));
+        save(createHit("/events/1", STARTED.plusMinutes(19)));
+
+        assertThat(liveCounterService.rejectedSecondsCount()).isZero();
+    }
+
+    @Test
+    void onHitsSaved_FromManyThreads_ShouldNotLoseIncrements() throws Exception {
+        clock.set(STARTED.plusMinutes(5));
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 1_000; j++) {
+                        save(createHit("/events/1", STARTED.plusMinutes(4).plusSeconds(j % 60)));
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+        }
+
+        assertThat(liveCounterService.getNonUniqueStat(STARTED.plusMinutes(4), STARTED.plusMinutes(5), null, null))
+                .containsExactly(new StatHit("ewm-main-service", "/events/1", 8_000L));
+    }
+
+    private void save(Hit... hits) {
+        liveCounterService.onHitsSaved(new HitsSavedEvent(List.of(hits)));
+    }
+
+    private Hit createHit(String uri, LocalDateTime timestamp) {
+        Hit hit = new Hit();
+        hit.setApp("ewm-main-service");
+        hit.setUri(uri);
+        hit.setIp("192.168.1.1");
+        hit.setTimestamp(timestamp);
+        return hit;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        private MutableClock(LocalDateTime now) {
+            set(now);
+        }
+
+        void set(LocalDateTime now) {
+            instant = now.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
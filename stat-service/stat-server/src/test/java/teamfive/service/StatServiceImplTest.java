@@ -1,21 +1,31 @@
 package teamfive.service;
 
 import dto.InputHitDto;
+import dto.OutBatchHitDto;
 import dto.OutHitDto;
 import dto.StatDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import teamfive.config.StatsCacheProperties;
 import teamfive.mapper.SimpleHitMapper;
+import teamfive.metrics.StatMetrics;
 import teamfive.model.Hit;
+import teamfive.model.RollupRange;
 import teamfive.model.StatHit;
+import teamfive.storage.HitDictionary;
 import teamfive.storage.StatRepository;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -27,12 +37,44 @@ class StatServiceImplTest {
     @Mock
     private StatRepository statRepository;
 
+    @Mock
+    private HitWriter hitWriter;
+
+    @Mock
+    private HitWriteBehindBuffer hitBuffer;
+
+    @Mock
+    private LiveCounterService liveCounterService;
+
+    @Mock
+    private HitRollupService rollupService;
+
+    @Mock
+    private HitSketchService sketchService;
+
+    @Spy
+    private StatsCache statsCache = new StatsCache(new StatsCacheProperties(), new SimpleMeterRegistry());
+
     @Mock
     private SimpleHitMapper mapper;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private StatMetrics statMetrics = new StatMetrics(meterRegistry);
+
+    @Mock
+    private HitDictionary hitDictionary;
+
     @InjectMocks
     private StatServiceImpl statService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(hitDictionary.knownUris(any())).thenAnswer(invocation -> List.copyOf(
+                invocation.<List<String>>getArgument(0)));
+    }
+
     @Test
     void getStats_WithUniqueTrue_ShouldCallUniqueStat() {
         LocalDateTime start = LocalDateTime.now().minusDays(1);
@@ -48,13 +90,13 @@ class StatServiceImplTest {
                 createStatDto("ewm-main-service", "/events/1", 10L)
         );
 
-        when(statRepository.getUniqueStat(start, end, uris)).thenReturn(statHits);
+        when(statRepository.getUniqueStat(start, end, uris, Limit.unlimited())).thenReturn(statHits);
         when(mapper.statHitToStatDto(any(StatHit.class))).thenReturn(statDtos.get(0));
 
         List<StatDto> result = statService.getStats(start, end, uris, unique);
 
-        verify(statRepository).getUniqueStat(start, end, uris);
-        verify(statRepository, never()).getNonUniqueStat(any(), any(), any());
+        verify(statRepository).getUniqueStat(start, end, uris, Limit.unlimited());
+        verify(statRepository, never()).getNonUniqueStat(any(), any(), any(), any());
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getHits()).isEqualTo(10L);
     }
@@ -74,17 +116,74 @@ class StatServiceImplTest {
                 createStatDto("ewm-main-service", "/events/1", 15L)
         );
 
-        when(statRepository.getNonUniqueStat(start, end, uris)).thenReturn(statHits);
+        when(statRepository.getNonUniqueStat(start, end, uris, Limit.unlimited())).thenReturn(statHits);
         when(mapper.statHitToStatDto(any(StatHit.class))).thenReturn(statDtos.get(0));
 
         List<StatDto> result = statService.getStats(start, end, uris, unique);
 
-        verify(statRepository).getNonUniqueStat(start, end, uris);
-        verify(statRepository, never()).getUniqueStat(any(), any(), any());
+        verify(statRepository).getNonUniqueStat(start, end, uris, Limit.unlimited());
+        verify(statRepository, never()).getUniqueStat(any(), any(), any(), any());
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getHits()).isEqualTo(15L);
     }
 
+    @Test
+    void getStats_WithRollupRange_ShouldUseRollups() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 3, 12, 15);
+        List<String> uris = List.of("/events/1");
+        RollupRange range = RollupRange.of(start, end).orElseThrow();
+        StatHit statHit = new StatHit("ewm-main-service", "/events/1", 42L);
+
+        when(rollupService.findRange(start, end)).thenReturn(Optional.of(range));
+        when(rollupService.getNonUniqueStat(range, uris, null)).thenReturn(List.of(statHit));
+        when(mapper.statHitToStatDto(statHit)).thenReturn(createStatDto("ewm-main-service", "/events/1", 42L));
+
+        List<StatDto> result = statService.getStats(start, end, uris, false);
+
+        verify(statRepository, never()).getNonUniqueStat(any(), any(), any(), any());
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getHits()).isEqualTo(42L);
+    }
+
+    @Test
+    void getStats_WithLiveRange_ShouldNotQueryDatabase() {
+        LocalDateTime start = LocalDateTime.now().minusMinutes(5);
+        LocalDateTime end = LocalDateTime.now();
+        List<String> uris = List.of("/events/1");
+        StatHit statHit = new StatHit("ewm-main-service", "/events/1", 3L);
+
+        when(liveCounterService.covers(start, end)).thenReturn(true);
+        when(liveCounterService.getNonUniqueStat(start, end, uris, null)).thenReturn(List.of(statHit));
+        when(mapper.statHitToStatDto(statHit)).thenReturn(createStatDto("ewm-main-service", "/events/1", 3L));
+
+        List<StatDto> result = statService.getStats(start, end, uris, false);
+
+        verify(statRepository, never()).getNonUniqueStat(any(), any(), any(), any());
+        verify(rollupService, never()).findRange(any(), any());
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getHits()).isEqualTo(3L);
+    }
+
+    @Test
+    void getStats_WithApproximateUnique_ShouldUseSketches() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 3, 12, 15);
+        List<String> uris = List.of("/events/1");
+        RollupRange range = RollupRange.of(start, end).orElseThrow();
+        StatHit statHit = new StatHit("ewm-main-service", "/events/1", 7L);
+
+        when(sketchService.findRange(start, end)).thenReturn(Optional.of(range));
+        when(sketchService.getApproximateUniqueStat(range, uris)).thenReturn(List.of(statHit));
+        when(mapper.statHitToStatDto(statHit)).thenReturn(createStatDto("ewm-main-service", "/events/1", 7L));
+
+        List<StatDto> result = statService.getStats(start, end, uris, true, true);
+
+        verify(statRepository, never()).getUniqueStat(any(), any(), any(), any());
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getHits()).isEqualTo(7L);
+    }
+
     @Test
     void getStats_WithEmptyUris_ShouldReturnEmptyList() {
         LocalDateTime start = LocalDateTime.now().minusDays(1);
@@ -108,12 +207,12 @@ class StatServiceImplTest {
                 new StatHit("ewm-main-service", "/events/1", 5L)
         );
 
-        when(statRepository.getUniqueStat(start, end, uris)).thenReturn(statHits);
+        when(statRepository.getUniqueStat(start, end, uris, Limit.unlimited())).thenReturn(statHits);
         when(mapper.statHitToStatDto(any(StatHit.class))).thenReturn(createStatDto("ewm-main-service", "/events/1", 5L));
 
         List<StatDto> result = statService.getStats(start, end, uris, unique);
 
-        verify(statRepository).getUniqueStat(start, end, uris);
+        verify(statRepository).getUniqueStat(start, end, uris, Limit.unlimited());
         assertThat(result).hasSize(1);
     }
 
@@ -134,7 +233,7 @@ class StatServiceImplTest {
                 createStatDto("ewm-main-service", "/events/2", 5L)
         );
 
-        when(statRepository.getNonUniqueStat(start, end, uris)).thenReturn(statHits);
+        when(statRepository.getNonUniqueStat(start, end, uris, Limit.unlimited())).thenReturn(statHits);
         when(mapper.statHitToStatDto(statHits.get(0))).thenReturn(expectedDtos.get(0));
         when(mapper.statHitToStatDto(statHits.get(1))).thenReturn(expectedDtos.get(1));
 
@@ -146,6 +245,25 @@ class StatServiceImplTest {
         verify(mapper, times(2)).statHitToStatDto(any(StatHit.class));
     }
 
+    @Test
+    void getStats_ShouldRecordQueryMetrics() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = start.plusDays(3);
+        List<String> uris = List.of("/events/1", "/events/2");
+
+        when(statRepository.getUniqueStat(start, end, uris, Limit.unlimited()))
+                .thenReturn(List.of(new StatHit("ewm-main-service", "/events/1", 10L)));
+        when(mapper.statHitToStatDto(any(StatHit.class))).thenReturn(createStatDto("ewm-main-service", "/events/1", 10L));
+
+        statService.getStats(start, end, uris, true);
+
+        assertThat(meterRegistry.get(StatMetrics.REPOSITORY_QUERIES)
+                .tags("query", "getUniqueStat", "unique", "true", "uris", "2-10", "range", "7d")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(StatMetrics.SERVICE_STATS).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(StatMetrics.STATS_RESULT_SIZE).summary().totalAmount()).isEqualTo(1);
+    }
+
     @Test
     void createHit_ShouldSaveAndReturnMappedDto() {
         InputHitDto inputDto = createInputHitDto();
@@ -153,13 +271,13 @@ class StatServiceImplTest {
         OutHitDto expectedDto = createOutHitDto();
 
         when(mapper.dtoToHit(inputDto)).thenReturn(savedHit);
-        when(statRepository.save(savedHit)).thenReturn(savedHit);
+        when(hitWriter.save(savedHit)).thenReturn(savedHit);
         when(mapper.hitToDto(savedHit)).thenReturn(expectedDto);
 
         OutHitDto result = statService.createHit(inputDto);
 
         verify(mapper).dtoToHit(inputDto);
-        verify(statRepository).save(savedHit);
+        verify(hitWriter).save(savedHit);
         verify(mapper).hitToDto(savedHit);
 
         assertThat(result).isNotNull();
@@ -167,6 +285,40 @@ class StatServiceImplTest {
         assertThat(result.getApp()).isEqualTo("ewm-main-service");
     }
 
+    @Test
+    void createHits_ShouldSaveBatchAndReturnSummary() {
+        List<InputHitDto> inputDtos = List.of(createInputHitDto(), createInputHitDto());
+        List<Hit> hits = List.of(createHit(), createHit());
+
+        when(mapper.dtosToHits(inputDtos)).thenReturn(hits);
+        when(hitWriter.saveAll(hits)).thenReturn(2);
+
+        OutBatchHitDto result = statService.createHits(inputDtos);
+
+        verify(hitWriter).saveAll(hits);
+        verify(hitWriter, never()).save(any());
+        assertThat(result.getAccepted()).isEqualTo(2);
+    }
+
+    @Test
+    void createHit_WithWriteBehind_ShouldEnqueueWithoutSaving() {
+        InputHitDto inputDto = createInputHitDto();
+        Hit hit = createHit();
+        hit.setId(null);
+        OutHitDto expectedDto = createOutHitDto();
+        expectedDto.setId(null);
+
+        when(mapper.dtoToHit(inputDto)).thenReturn(hit);
+        when(hitBuffer.isEnabled()).thenReturn(true);
+        when(mapper.hitToDto(hit)).thenReturn(expectedDto);
+
+        OutHitDto result = statService.createHit(inputDto);
+
+        verify(hitBuffer).enqueue(hit);
+        verify(hitWriter, never()).save(any());
+        assertThat(result.getId()).isNull();
+    }
+
     private InputHitDto createInputHitDto() {
         InputHitDto dto = new InputHitDto();
         dto.setApp("ewm-main-service");
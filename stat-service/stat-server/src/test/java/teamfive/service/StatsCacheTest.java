@@ -0,0 +1,128 @@
+package teamfive.service;
+
+import dto.StatDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import teamfive.config.StatsCacheProperties;
+import teamfive.model.Hit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 1, 2, 0, 0);
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private StatsCache statsCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        statsCache = new StatsCache(new StatsCacheProperties(), meterRegistry);
+    }
+
+    @Test
+    void get_WithSameNormalisedKey_ShouldLoadOnce() {
+        get(List.of("/events/2", "/events/1"));
+        get(List.of("/events/1", "/events/2", "/events/1"));
+
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "stats").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "stats").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void onHitsSaved_WithMatchingHit_ShouldInvalidate() {
+        get(List.of("/events/1"));
+        get(null);
+
+        statsCache.onHitsSaved(new HitsSavedEvent(List.of(createHit("/events/1", START.plusHours(1)))));
+        get(List.of("/events/1"));
+        get(null);
+
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void onHitsSaved_WithHitOutsideKey_ShouldKeepEntry() {
+        get(List.of("/events/1"));
+
+        statsCache.onHitsSaved(new HitsSavedEvent(List.of(
+                createHit("/events/2", START.plusHours(1)),
+                createHit("/events/1", END.plusSeconds(1)))));
+        get(List.of("/events/1"));
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void onHitsSaved_WithBatch_ShouldInvalidateKeysOverlappingHitsOfTheirUris() {
+        get(List.of("/events/1", "/events/2"));
+        get(List.of("/events/3"));
+        loads.set(0);
+
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            hits.add(createHit("/events/" + (1 + i % 2), START.plusSeconds(i)));
+        }
+        hits.add(createHit("/events/3", END.plusSeconds(1)));
+        statsCache.onHitsSaved(new HitsSavedEvent(hits));
+        get(List.of("/events/1", "/events/2"));
+        get(List.of("/events/3"));
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void onHitsSaved_DuringLoad_ShouldNotCacheStaleResult() {
+        Supplier<List<StatDto>> loader = () -> {
+            loads.incrementAndGet();
+            statsCache.onHitsSaved(new HitsSavedEvent(List.of(createHit("/events/1", START))));
+            return List.of();
+        };
+
+        statsCache.get(START, END, List.of("/events/1"), false, false, loader);
+        get(List.of("/events/1"));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_WhenDisabled_ShouldAlwaysLoad() {
+        StatsCacheProperties properties = new StatsCacheProperties();
+        properties.setEnabled(false);
+        statsCache = new StatsCache(properties, meterRegistry);
+
+        get(List.of("/events/1"));
+        get(List.of("/events/1"));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private List<StatDto> get(List<String> uris) {
+        return statsCache.get(START, END, uris, false, false, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+    }
+
+    private Hit createHit(String uri, LocalDateTime timestamp) {
+        Hit hit = new Hit();
+        hit.setApp("ewm-main-service");
+        hit.setUri(uri);
+        hit.setIp("192.168.1.1");
+        hit.setTimestamp(timestamp);
+        return hit;
+    }
+}
@@ -0,0 +1,128 @@
+package teamfive.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import teamfive.config.TopUriProperties;
+import teamfive.model.Hit;
+import teamfive.model.StatHit;
+import teamfive.storage.HitTopRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class TopUriServiceTest {
+
+    private static final String APP = "top-uri-service-test";
+
+    @Autowired
+    private HitWriter hitWriter;
+
+    @Autowired
+    private TopUriService topUriService;
+
+    @Autowired
+    private HitTopRepository topRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TopUriProperties properties;
+
+    @Test
+    void getTop_ShouldRankUrisWithinWindowAndSurviveRestart() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Hit> hits = new ArrayList<>();
+        addHits(hits, "/events/1", 5, now.minusMinutes(5));
+        addHits(hits, "/events/2", 3, now.minusMinutes(5));
+        addHits(hits, "/events/3", 1, now.minusMinutes(5));
+        addHits(hits, "/events/4", 10, now.minusHours(3));
+        addHits(hits, "/events/5", 20, now.minusDays(3));
+        hitWriter.saveAll(hits);
+
+        assertThat(topUriService.getTop(APP, Duration.ofMinutes(60), 2)).containsExactly(
+                new StatHit(APP, "/events/1", 5L),
+                new StatHit(APP, "/events/2", 3L));
+        assertThat(topUriService.getTop(APP, Duration.ofHours(5), 1)).containsExactly(
+                new StatHit(APP, "/events/4", 10L));
+        assertThat(topUriService.getTop("unknown-app", Duration.ofHours(1), 10)).isEmpty();
+
+        topUriService.checkpoint();
+        TopUriService restarted = new TopUriService(topRepository, transactionTemplate, properties);
+        restarted.init();
+
+        assertThat(restarted.getTop(APP, Duration.ofHours(5), 10))
+                .isEqualTo(topUriService.getTop(APP, Duration.ofHours(5), 10));
+        assertThat(restarted.getTop(APP, Duration.ofMinutes(60), 10))
+                .isEqualTo(topUriService.getTop(APP, Duration.ofMinutes(60), 10));
+    }
+
+    @Test
+    void getTop_ShouldNotCountHitsMoreThanHalfBucketBeforeWindow() {
+        String app = APP + "-edge";
+        LocalDateTime now = LocalDateTime.now();
+        List<Hit> hits = new ArrayList<>();
+        addHits(hits, "/events/old", 4, now.minusMinutes(115));
+        addHits(hits, "/events/recent", 2, now.minusMinutes(5));
+        hits.forEach(hit -> hit.setApp(app));
+        hitWriter.saveAll(hits);
+
+        assertThat(topUriService.getTop(app, Duration.ofMinutes(65), 10)).containsExactly(
+                new StatHit(app, "/events/recent", 2L));
+        assertThat(topUriService.getTop(app, Duration.ofHours(3), 10)).containsExactly(
+                new StatHit(app, "/events/old", 4L),
+                new StatHit(app, "/events/recent", 2L));
+    }
+
+    @Test
+    void onHitsSaved_WithConcurrentWriters_ShouldCountEveryHit() throws Exception {
+        String app = APP + "-concurrent";
+        LocalDateTime now = LocalDateTime.now();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String uri = "/events/" + i % 4;
+                futures.add(executor.submit(() -> {
+                    Hit hit = new Hit();
+                    hit.setApp(app);
+                    hit.setUri(uri);
+                    hit.setIp("10.0.1.1");
+                    hit.setTimestamp(now);
+                    topUriService.onHitsSaved(new HitsSavedEvent(List.of(hit)));
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(topUriService.getTop(app, Duration.ofMinutes(10), 10))
+                .extracting(StatHit::getHits)
+                .containsExactly(50L, 50L, 50L, 50L);
+    }
+
+    private void addHits(List<Hit> hits, String uri, int count, LocalDateTime timestamp) {
+        for (int i = 0; i < count; i++) {
+            Hit hit = new Hit();
+            hit.setApp(APP);
+            hit.setUri(uri);
+            hit.setIp("10.0.0." + i);
+            hit.setTimestamp(timestamp);
+            hits.add(hit);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package teamfive.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_ShouldStayWithinErrorBound() {
+        double tolerance = 3 * HyperLogLog.standardError(HyperLogLog.DEFAULT_PRECISION);
+        for (int cardinality : new int[]{10, 1_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add(ip(i));
+                sketch.add(ip(i));
+            }
+
+            assertThat((double) sketch.estimate()).isCloseTo(cardinality, within(cardinality * tolerance + 1));
+        }
+    }
+
+    @Test
+    void estimate_WithSmallCardinality_ShouldUseLinearCounting() {
+        HyperLogLog sketch = new HyperLogLog();
+        assertThat(sketch.estimate()).isZero();
+        for (int cardinality = 1; cardinality <= 3_000; cardinality++) {
+            sketch.add(ip(cardinality));
+            if (cardinality <= 50) {
+                assertThat(sketch.estimate()).isCloseTo(cardinality, within(1L));
+            } else {
+                assertThat((double) sketch.estimate()).isCloseTo(cardinality, within(cardinality * 0.05 + 1));
+            }
+        }
+    }
+
+    @Test
+    void merge_ShouldEqualSketchOfUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 50_000; i++) {
+            left.add(ip(i));
+            union.add(ip(i));
+        }
+        for (int i = 25_000; i < 80_000; i++) {
+            right.add(ip(i));
+            union.add(ip(i));
+        }
+
+        left.merge(right);
+
+        assertThat(left.toBytes()).isEqualTo(union.toBytes());
+    }
+
+    @Test
+    void toBytes_ShouldRoundTripSparseAndDenseSketches() {
+        HyperLogLog sparse = new HyperLogLog();
+        HyperLogLog dense = new HyperLogLog();
+        for (int i = 0; i < 20; i++) {
+            sparse.add(ip(i));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            dense.add(ip(i));
+        }
+
+        assertThat(sparse.toBytes().length).isLessThan(100);
+        assertThat(HyperLogLog.fromBytes(sparse.toBytes()).estimate()).isEqualTo(sparse.estimate());
+        assertThat(HyperLogLog.fromBytes(dense.toBytes()).estimate()).isEqualTo(dense.estimate());
+    }
+
+    @Test
+    void merge_WithDifferentPrecision_ShouldThrow() {
+        assertThatThrownBy(() -> new HyperLogLog(12).merge(new HyperLogLog(14)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String ip(int i) {
+        return "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff) + (i >>> 24);
+    }
+}
@@ -0,0 +1,58 @@
+package teamfive.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTest {
+
+    @Test
+    void top_ShouldFindHeavyHittersWithBoundedOverestimate() {
+        SpaceSaving summary = new SpaceSaving(50);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            String uri = random.nextBoolean()
+                    ? "/events/" + (int) Math.floor(5 - Math.sqrt(random.nextDouble() * 25))
+                    : "/noise/" + random.nextInt(10_000);
+            summary.add(uri);
+            exact.merge(uri, 1L, Long::sum);
+        }
+
+        List<SpaceSaving.Entry> top = summary.top(5);
+
+        assertThat(top).extracting(SpaceSaving.Entry::item)
+                .containsExactly("/events/0", "/events/1", "/events/2", "/events/3", "/events/4");
+        for (SpaceSaving.Entry entry : top) {
+            long actual = exact.get(entry.item());
+            assertThat(entry.count()).isGreaterThanOrEqualTo(actual);
+            assertThat(entry.count() - entry.error()).isLessThanOrEqualTo(actual);
+        }
+        assertThat(summary.size()).isEqualTo(50);
+    }
+
+    @Test
+    void toBytes_ShouldRoundTrip() {
+        SpaceSaving summary = new SpaceSaving(3);
+        summary.add("/events/1");
+        summary.add("/events/1");
+        summary.add("/events/2");
+        summary.add("/events/3");
+        summary.add("/events/4");
+
+        SpaceSaving restored = SpaceSaving.fromBytes(summary.toBytes());
+
+        assertThat(restored.top(3)).isEqualTo(summary.top(3));
+    }
+
+    @Test
+    void constructor_WithNonPositiveCapacity_ShouldThrow() {
+        assertThatThrownBy(() -> new SpaceSaving(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,100 @@
+package teamfive.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import teamfive.model.Hit;
+import teamfive.model.RollupRange;
+import teamfive.model.StatHit;
+import teamfive.service.HitWriter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class HitRollupRepositoryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private HitWriter hitWriter;
+
+    @Autowired
+    private HitRollupRepository rollupRepository;
+
+    @Autowired
+    private StatRepository statRepository;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            LocalDateTime timestamp = BASE.plusSeconds(random.nextInt(5 * 24 * 60 * 60));
+            hits.add(createHit("/events/" + random.nextInt(5), timestamp));
+        }
+        hits.add(createHit("/events/0", BASE.plusDays(1)));
+        hits.add(createHit("/events/0", BASE.plusDays(2).minusNanos(1_000)));
+        Hit single = createHit("/events/1", BASE.plusHours(30).plusMinutes(5));
+        hitWriter.saveAll(hits);
+        hitWriter.save(single);
+    }
+
+    @Test
+    void getNonUniqueStat_ShouldMatchRawAggregation() {
+        assertMatchesRaw(BASE.plusHours(3).plusMinutes(17), BASE.plusDays(3).plusHours(5).plusSeconds(11),
+                List.of("/events/0", "/events/1"));
+        assertMatchesRaw(BASE.plusHours(3).plusMinutes(17), BASE.plusDays(3).plusHours(5).plusSeconds(11), null);
+        assertMatchesRaw(BASE.plusMinutes(30), BASE.plusHours(7).plusMinutes(30), List.of("/events/2"));
+    }
+
+    @Test
+    void getNonUniqueStat_WithAlignedBoundaries_ShouldIncludeEndInstant() {
+        assertMatchesRaw(BASE.plusDays(1), BASE.plusDays(2), List.of("/events/0"));
+        assertMatchesRaw(BASE.plusDays(1), BASE.plusDays(2).minusNanos(1_000), List.of("/events/0"));
+        assertMatchesRaw(BASE, BASE.plusDays(5), null);
+    }
+
+    @Test
+    void getNonUniqueStat_WithEmptyUris_ShouldReturnEmptyList() {
+        RollupRange range = RollupRange.of(BASE, BASE.plusDays(1)).orElseThrow();
+
+        assertThat(rollupRepository.getNonUniqueStat(range, List.of())).isEmpty();
+    }
+
+    @Test
+    void rollupRange_WithoutFullHour_ShouldBeEmpty() {
+        assertThat(RollupRange.of(BASE.plusMinutes(10), BASE.plusMinutes(50))).isEmpty();
+        assertThat(RollupRange.of(BASE.plusMinutes(10), BASE.plusHours(1).plusMinutes(50))).isEmpty();
+        assertThat(RollupRange.of(BASE.plusMinutes(10), BASE.plusHours(2))).isPresent();
+    }
+
+    private void assertMatchesRaw(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        RollupRange range = RollupRange.of(start, end).orElseThrow();
+
+        List<StatHit> expected = statRepository.getNonUniqueStat(start, end, uris);
+        List<StatHit> actual = rollupRepository.getNonUniqueStat(range, uris);
+
+        assertThat(actual).isNotEmpty();
+        assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(actual).isSortedAccordingTo((a, b) -> Long.compare(b.getHits(), a.getHits()));
+    }
+
+    private Hit createHit(String uri, LocalDateTime timestamp) {
+        Hit hit = new Hit();
+        hit.setApp("ewm-main-service");
+        hit.setUri(uri);
+        hit.setIp("192.168.1.1");
+        hit.setTimestamp(timestamp);
+        return hit;
+    }
+}
@@ -0,0 +1,81 @@
+package teamfive.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import teamfive.model.Hit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class HitsIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    private static final String STAT_BY_URIS = """
+            SELECT app_id, uri_id, COUNT(DISTINCT ip)
+            FROM hits
+            WHERE timestamp BETWEEN '2024-05-02 00:00:00' AND '2024-05-02 06:00:00'
+              AND uri_id IN (%d, %d)
+            GROUP BY app_id, uri_id
+            """;
+
+    private static final String STAT_ALL_URIS = """
+            SELECT app_id, uri_id, COUNT(ip)
+            FROM hits
+            WHERE timestamp BETWEEN '2024-05-02 00:00:00' AND '2024-05-02 06:00:00'
+            GROUP BY app_id, uri_id
+            """;
+
+    @Autowired
+    private HitBatchRepository hitBatchRepository;
+
+    @Autowired
+    private HitDictionary hitDictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(1);
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Hit hit = new Hit();
+            hit.setApp("ewm-main-service");
+            hit.setUri("/events/" + random.nextInt(500));
+            hit.setIp("10.0.0." + random.nextInt(250));
+            hit.setTimestamp(BASE.plusSeconds(random.nextInt(30 * 24 * 60 * 60)));
+            hits.add(hit);
+        }
+        hitBatchRepository.saveAll(hits);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void statByUris_ShouldUseUriTimestampIndex() {
+        String sql = STAT_BY_URIS.formatted(hitDictionary.uriId("/events/1"), hitDictionary.uriId("/events/2"));
+
+        assertThat(explain(sql)).containsPattern("(?i)hits\\w*_uri(_id)?_timestamp\\w*_idx");
+    }
+
+    @Test
+    void statAllUris_ShouldUseTimestampIndex() {
+        assertThat(explain(STAT_ALL_URIS)).containsPattern("(?i)hits\\w*_timestamp_uri\\w*_idx");
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -0,0 +1,40 @@
+package teamfive.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpAddressCodecTest {
+
+    @Test
+    void encode_WithIpv4_ShouldUseFiveBytes() {
+        byte[] bytes = IpAddressCodec.encode("192.168.1.10");
+
+        assertThat(bytes).containsExactly(4, (byte) 192, (byte) 168, 1, 10);
+        assertThat(IpAddressCodec.decode(bytes)).isEqualTo("192.168.1.10");
+    }
+
+    @Test
+    void encode_WithIpv6_ShouldUseSeventeenBytes() {
+        byte[] bytes = IpAddressCodec.encode("2001:db8::1");
+
+        assertThat(bytes).hasSize(17);
+        assertThat(bytes[0]).isEqualTo((byte) 6);
+        assertThat(IpAddressCodec.normalize("2001:DB8:0:0:0:0:0:1")).isEqualTo(IpAddressCodec.decode(bytes));
+    }
+
+    @Test
+    void encode_WithMappedIpv4_ShouldStoreIpv4() {
+        assertThat(IpAddressCodec.encode("::ffff:10.0.0.1")).containsExactly(4, 10, 0, 0, 1);
+    }
+
+    @Test
+    void encode_WithNonCanonicalValue_ShouldKeepText() {
+        for (String ip : new String[]{"010.0.0.1", "localhost", "1.2.3", "fe80::1%eth0", ""}) {
+            byte[] bytes = IpAddressCodec.encode(ip);
+
+            assertThat(bytes[0]).isZero();
+            assertThat(IpAddressCodec.decode(bytes)).isEqualTo(ip);
+        }
+    }
+}
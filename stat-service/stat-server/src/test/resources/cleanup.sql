@@ -1 +1,4 @@
-DELETE FROM hits;
\ No newline at end of file
+DELETE FROM hits;
+DELETE FROM hit_rollups;
+DELETE FROM hit_sketches;
+DELETE FROM hit_top_checkpoints;